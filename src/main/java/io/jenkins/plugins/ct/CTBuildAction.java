@@ -5,29 +5,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.Serializable;
-import java.lang.ref.WeakReference;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
 
 import org.jvnet.localizer.Localizable;
+import org.kohsuke.stapler.Stapler;
 import org.kohsuke.stapler.StaplerProxy;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 
-import hudson.FilePath;
 import hudson.model.AbstractBuild;
 import hudson.model.Action;
 import hudson.model.HealthReport;
@@ -40,6 +37,9 @@ import io.jenkins.plugins.ct.model.CoverageElement;
 import io.jenkins.plugins.ct.model.CoverageObject;
 import io.jenkins.plugins.ct.model.CoverageElement.Type;
 import io.jenkins.plugins.ct.report.CoverageReport;
+import io.jenkins.plugins.ct.report.CoverageReportParser;
+import io.jenkins.plugins.ct.report.ReportSnapshot;
+import io.jenkins.plugins.ct.report.StaticReport;
 import jenkins.model.RunAction2;
 import jenkins.tasks.SimpleBuildStep.LastBuildAction;
 
@@ -61,7 +61,6 @@ public final class CTBuildAction extends CoverageObject<CTBuildAction> implement
 	
 	private final transient PrintStream logger;
 	@Deprecated private transient ArrayList<?> reports;
-	private transient WeakReference<CoverageReport> report;
 	private final String[] inclusions;
 	private final String[] exclusions;
 	private transient CTReportDir layout;
@@ -73,6 +72,11 @@ public final class CTBuildAction extends CoverageObject<CTBuildAction> implement
 	private final CTHealthReportThresholds thresholds;
 	private transient CTProjectAction ctProjectAction;
 
+	/**
+	 * Milliseconds a page waits for the report before it shows that it is loading.
+	 */
+	/*package*/ static final long LOADING_WAIT = 300;
+
 	/**
 	 * 
 	 * @param ratios
@@ -201,8 +205,58 @@ public final class CTBuildAction extends CoverageObject<CTBuildAction> implement
 		return score;
 	}
 
+	/**
+	 * The report if it is loaded, otherwise a page that waits for it. A report that
+	 * loads within {@link #LOADING_WAIT} milliseconds is shown right away.
+	 * <p>
+	 * The static pages are served without loading the report, and when they exist
+	 * the index sends users to them; {@code ?live} opens the loaded report instead.
+	 */
 	public Object getTarget() {
-		return getResult();
+		StaplerRequest req = Stapler.getCurrentRequest();
+		if (req != null && hasStaticHtml()) {
+			String rest = req.getRestOfPath();
+			if (rest.equals("/html") || rest.startsWith("/html/")
+					|| ((rest.isEmpty() || rest.equals("/")) && req.getParameter("live") == null)) {
+				return this;
+			}
+		}
+		Future<CoverageReport> result = getResultAsync();
+		try {
+			return result.get(LOADING_WAIT, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			return new CTReportLoading(this);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			getLogger().println("Failed to load ");
+			e.getCause().printStackTrace(getLogger());
+			return null;
+		}
+	}
+
+	/**
+	 * The pages rendered when the build was published, served under {@code html/}.
+	 * A new instance is returned each time so a later rendering is picked up.
+	 * @return the static report, or null if the pages were not rendered
+	 * @throws IOException if the rendered report cannot be read
+	 */
+	public @Nullable StaticReport getHtml() throws IOException {
+		File dir = getCTReport().getStaticHtmlDir();
+		return StaticReport.exists(dir) ? new StaticReport(dir) : null;
+	}
+
+	public boolean hasStaticHtml() {
+		return StaticReport.exists(getCTReport().getStaticHtmlDir());
+	}
+
+	/**
+	 * Sends users to the static pages; only reached when they exist, see {@link #getTarget()}.
+	 */
+	@SuppressWarnings({"lgtm[jenkins/no-permission-check]", "lgtm[jenkins/csrf]"})
+	public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+		rsp.sendRedirect2(req.getContextPath() + "/" + owner.getUrl() + getUrlName() + "/html/");
 	}
 
 	@Override
@@ -214,40 +268,71 @@ public final class CTBuildAction extends CoverageObject<CTBuildAction> implement
         return new CTReportDir(owner.getRootDir());
     }
     
-    protected static List<FilePath> getReports(List<File> files) throws IOException, InterruptedException {
-    	List<FilePath> paths = new ArrayList<>();
-    	for ( File file : files) {
-    		paths.add(new FilePath(file));
-    	}
-		return paths;
+	/**
+	 * Obtains the detailed {@link CoverageReport} instance, waiting for it if it is
+	 * not loaded yet. Pages should use {@link #getResultAsync()}.
+	 * @return the report, or null if these was a problem
+	 */
+	public @Nullable CoverageReport getResult() {
+		try {
+			return getResultAsync().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			getLogger().println("Failed to load ");
+			e.getCause().printStackTrace(getLogger());
+			return null;
+		}
 	}
 
 	/**
-	 * Obtains the detailed {@link CoverageReport} instance.
-	 * @return the report, or null if these was a problem
+	 * Starts to load the report unless it is cached or already loading,
+	 * see {@link CTReportLoadService}.
+	 * @return future of the report, null if there was a problem
 	 */
-	public synchronized @Nullable CoverageReport getResult() {
+	public Future<CoverageReport> getResultAsync() {
+		return CTReportLoadService.get().load(getCacheKey(), this::loadResult);
+	}
 
-		if(report!=null) {
-			final CoverageReport r = report.get();
-			if(r!=null) {
+	/**
+	 * @return whether the report is being loaded
+	 */
+	public boolean isLoading() {
+		return CTReportLoadService.get().isLoading(getCacheKey());
+	}
+
+	private @Nullable CoverageReport loadResult() {
+		CTReportDir dir = getCTReport();
+		if (dir.isSnapshotUpToDate()) {
+			try {
+				CoverageReport r = new CoverageReport(this, ReportSnapshot.open(dir.getSnapshotFile()));
+				r.setThresholds(thresholds);
 				return r;
+			} catch (IOException | RuntimeException e) {
+				// e.g. written by another format version or corrupt, parse the XML again
+				getLogger().println("[Build Action] ignoring report snapshot: " + e);
+				try {
+					Files.deleteIfExists(dir.getSnapshotFile().toPath());
+				} catch (IOException x) {
+					// replaced by the snapshot written after parsing
+				}
 			}
 		}
 
 		try {
 			getLogger().println("[Build Action] load report");
-			// Get the list of report files stored for this build
-			
-			List<FilePath> reports = getReports(this.getCTReport().getXmlFiles());
-            InputStream[] streams = new InputStream[reports.size()];
-            for (int i=0; i<reports.size(); i++) {
-            	streams[i] = reports.get(i).read();
-            }
-            
-			CoverageReport r = new CoverageReport(this, streams);
-			report = new WeakReference<>(r);
+			if (!Boolean.getBoolean(CTReportDir.class.getName() + ".KEEP_UNCOMPRESSED")) {
+				// builds recorded by older versions keep plain XML, compress it on first use
+				long saved = dir.compressXmlFiles();
+				if (saved > 0) {
+					getLogger().println("[Build Action] compressed XML reports, " + saved + " bytes saved");
+				}
+			}
+			// Parse the report files stored for this build
+			CoverageReport r = CTReportLoader.load(this, dir.getXmlFiles());
 			r.setThresholds(thresholds);
+			writeSnapshot(dir, r);
 			return r;
 		} catch (IOException | RuntimeException | InterruptedException e) {
 			getLogger().println("Failed to load ");
@@ -256,36 +341,72 @@ public final class CTBuildAction extends CoverageObject<CTBuildAction> implement
 		}
 	}
 
+	/**
+	 * @return key of the report of this build in {@link CTReportCache}
+	 */
+	private String getCacheKey() {
+		return getCacheKey(owner);
+	}
+
+	/**
+	 * @param run a build
+	 * @return key of the report of the build in {@link CTReportCache}
+	 */
+	static String getCacheKey(Run<?, ?> run) {
+		return run.getRootDir().getPath();
+	}
+
+	private void writeSnapshot(CTReportDir dir, CoverageReport r) {
+		File snapshot = dir.getSnapshotFile();
+		if (!snapshot.getParentFile().isDirectory()) {
+			return;
+		}
+		try {
+			ReportSnapshot.write(r, snapshot);
+		} catch (IOException e) {
+			getLogger().println("[Build Action] failed to write report snapshot: " + e.getMessage());
+		}
+	}
+
 	@Override
 	public CTBuildAction getPreviousResult() {
 		return getPreviousResult(owner);
 	}
 
 	/**
+	 * The graph reads the builds before this one from {@link CTTrendIndex}.
+	 * @return the point of this build in the trend of its job
+	 */
+	@Override
+	public CoverageObject<?> getTrendHead() {
+		try {
+			return CTTrendIndex.of(owner.getParent()).getPoint(owner, this);
+		} catch (IOException e) {
+			getLogger().println("[Build Action] failed to read the coverage trend: " + e.getMessage());
+			return this;
+		}
+	}
+
+	/**
+	 * Only uses the ratios recorded with the build, so the build page does not load the report.
 	 * @return A map which represents coverage objects and their status to show on build status page (summary.jelly).
 	 */
 	public Map<Coverage,Boolean> getCoverageRatios(){
-		CoverageReport result = getResult();
 		Map<Coverage,Boolean> ratios = new LinkedHashMap<>();
-		if( result != null ) {
-			Coverage mcdcScore = result.getMCDCCoverage();
-			Coverage branchCoverage = result.getBranchCoverage();
-			Coverage statementCoverage = result.getStatementCoverage();
-			Coverage callCoverage = result.getCallCoverage();
-
-			mcdcScore.setType(CoverageElement.Type.MCDC);			
-			branchCoverage.setType(CoverageElement.Type.BRANCH);			
-			statementCoverage.setType(CoverageElement.Type.STATEMENT);
-			callCoverage.setType(CoverageElement.Type.CALL);
-			
-			ratios.put(statementCoverage,CTHealthReportThresholds.RESULT.BELOWMINIMUM == thresholds.getResultByTypeAndRatio(statementCoverage));
-			ratios.put(branchCoverage,CTHealthReportThresholds.RESULT.BELOWMINIMUM == thresholds.getResultByTypeAndRatio(branchCoverage));
-			ratios.put(mcdcScore,CTHealthReportThresholds.RESULT.BELOWMINIMUM == thresholds.getResultByTypeAndRatio(mcdcScore));
-			ratios.put(callCoverage,CTHealthReportThresholds.RESULT.BELOWMINIMUM == thresholds.getResultByTypeAndRatio(callCoverage));
-			
-		}
+		putRatio(ratios, statement, CoverageElement.Type.STATEMENT);
+		putRatio(ratios, branch, CoverageElement.Type.BRANCH);
+		putRatio(ratios, mcdc, CoverageElement.Type.MCDC);
+		putRatio(ratios, call, CoverageElement.Type.CALL);
 		return ratios;
 	}
+
+	private void putRatio(Map<Coverage,Boolean> ratios, Coverage recorded, CoverageElement.Type type) {
+		// a copy, the recorded ratio is persisted without its type
+		Coverage ratio = recorded != null ? new Coverage(recorded.getMissed(), recorded.getCovered()) : new Coverage();
+		ratio.setType(type);
+		ratios.put(ratio, thresholds != null
+				&& CTHealthReportThresholds.RESULT.BELOWMINIMUM == thresholds.getResultByTypeAndRatio(ratio));
+	}
 	
 	/**
 	 * Gets the previous {@link CTBuildAction} of the given build.
@@ -307,6 +428,13 @@ public final class CTBuildAction extends CoverageObject<CTBuildAction> implement
 		}
 	}
 
+	/**
+	 * @return the functions and lines whose coverage changed since the previous build
+	 */
+	public CTCoverageChanges getChanges() {
+		return new CTCoverageChanges(this, getPreviousResult());
+	}
+
 	/**
 	 * Constructs the object from JaCoCo exec files.
 	 * @param thresholds
@@ -330,63 +458,22 @@ public final class CTBuildAction extends CoverageObject<CTBuildAction> implement
 
 
 	/**
-	 * Extracts top-level coverage information from the JaCoCo report document.
+	 * Extracts top-level coverage information from the saved XML reports.
+	 * <p>
+	 * Only the report level counters are read, in a single streaming pass per file,
+	 * and the counters of all files are summed up.
 	 */
 	private static Map<Type, Coverage> loadRatios(CTReportDir layout, String[] includes, String... excludes) throws IOException {
-		
 		Map<CoverageElement.Type,Coverage> ratios = new LinkedHashMap<>();
-        try {
-    		DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        
-	        for (File exec : layout.getXmlFiles()) {
-	
-	        	try {
-					Document document = builder.parse(exec.getAbsolutePath());
-					Element root = document.getDocumentElement();
-					var coverages = root.getElementsByTagName("counter");
-					for (int k = 0; k < coverages.getLength(); k++) {
-						Node node = coverages.item(k);
-						if (node.getNodeType() == Node.ELEMENT_NODE) {
-		                    Element coverage = (Element) node;
-		                    var type = coverage.getAttribute("type");
-		                    var covered = coverage.getAttribute("covered");
-		                    var missed = coverage.getAttribute("missed");
-		                    
-		                    Coverage ratio = new Coverage();
-		                    ratio.accumulatePP(Integer.parseInt(missed), Integer.parseInt(covered));
-		                    if ( type.equals("STATEMENT")) {
-		                		ratios.put(CoverageElement.Type.STATEMENT, ratio);
-		                    } 
-		                    else if (type.equals("BRANCH")) {
-		                    	ratios.put(CoverageElement.Type.BRANCH, ratio);
-		                    }
-		                    else if (type.equals("CALL")) {
-		                    	ratios.put(CoverageElement.Type.CALL, ratio);
-		                    }
-		                    else if (type.equals("MCDC")) {
-		                    	ratios.put(CoverageElement.Type.MCDC, ratio);
-		                    }
-						}
-					}
-					
-					
-				} catch (SAXException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				} catch (IOException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
-        	}
-        	
-	        
-	    }
-	    catch (ParserConfigurationException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		CoverageReportParser parser = new CoverageReportParser(!Boolean.getBoolean(CoverageReport.class.getName() + ".UNSAFE"));
+		for (File xml : layout.getXmlFiles()) {
+			try (InputStream is = CTReportDir.open(xml)) {
+				parser.readSummary(is, ratios);
+			} catch (IOException e) {
+				throw new IOException("Failed to parse " + xml, e);
+			}
 		}
 		return ratios;
-
 	}
 	
 	//private static final Logger logger = Logger.getLogger(JacocoBuildAction.class.getName());
@@ -412,6 +499,10 @@ public final class CTBuildAction extends CoverageObject<CTBuildAction> implement
 	@Override
 	public void onAttached(Run<?, ?> run) {
 		setOwner(run);
+		// the build may have been recorded before, drop the report loaded from then
+		CTReportCache.get().invalidate(getCacheKey());
+		CTGraphCache.get().invalidate(run.getParent().getRootDir());
+		CTCoverageChanges.invalidate(getCacheKey());
 	}
 
 	@Override
@@ -0,0 +1,338 @@
+package io.jenkins.plugins.ct;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.kohsuke.stapler.StaplerProxy;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+import hudson.model.Run;
+import io.jenkins.plugins.ct.model.Coverage;
+import io.jenkins.plugins.ct.report.CoverageDiff;
+import io.jenkins.plugins.ct.report.CoverageReport;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * The "Coverage changes" page of a build: the functions and lines whose coverage differs
+ * from an earlier build, by default the one {@link CTBuildAction#getPreviousResult()} finds.
+ * {@code changes/<number>/} compares with another build of the job.
+ * <p>
+ * Both reports are loaded with {@link CTBuildAction#getResultAsync()}; until they are
+ * there the page is a {@link CTReportLoading}. The {@link CoverageDiff} of a pair of builds
+ * is computed once and kept for the next requests; the number of pairs kept can be set
+ * with the system property {@code io.jenkins.plugins.ct.CTCoverageChanges.entries}.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CTCoverageChanges implements StaplerProxy {
+
+    private static final int ENTRIES = Math.max(1, Integer.getInteger(CTCoverageChanges.class.getName() + ".entries", 16));
+
+    private static final Map<String, CoverageDiff> DIFFS = new LinkedHashMap<String, CoverageDiff>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CoverageDiff> eldest) {
+            return size() > ENTRIES;
+        }
+    };
+
+    /**
+     * Functions listed on the page, the JSON lists all of them.
+     */
+    static final int PAGE_LIMIT = 500;
+    private static final int JSON_LIMIT = 100;
+    private static final int MAX_JSON_LIMIT = 1000;
+
+    private final CTBuildAction action;
+    private final @CheckForNull CTBuildAction baseline;
+
+    CTCoverageChanges(CTBuildAction action, @CheckForNull CTBuildAction baseline) {
+        this.action = action;
+        this.baseline = baseline;
+    }
+
+    public Run<?, ?> getBuild() {
+        return action.getOwner();
+    }
+
+    /**
+     * @return the build compared with, null if there is none
+     */
+    public @CheckForNull Run<?, ?> getBaselineBuild() {
+        return baseline != null ? baseline.getOwner() : null;
+    }
+
+    public String getDisplayName() {
+        return action.getDisplayName();
+    }
+
+    /**
+     * @return URL of the report of the build, relative to the root of Jenkins
+     */
+    public String getReportUrl() {
+        return getBuild().getUrl() + action.getUrlName() + "/";
+    }
+
+    /**
+     * This page if both reports are loaded, otherwise a page that waits for them. Reports
+     * that load within {@link CTBuildAction#LOADING_WAIT} milliseconds are compared right away.
+     */
+    @Override
+    public Object getTarget() {
+        // start both loads before waiting for either
+        Future<CoverageReport> before = baseline != null ? baseline.getResultAsync() : null;
+        Future<CoverageReport> after = action.getResultAsync();
+        long deadline = System.currentTimeMillis() + CTBuildAction.LOADING_WAIT;
+        try {
+            for (Future<CoverageReport> f : Arrays.asList(before, after)) {
+                if (f != null) {
+                    f.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                }
+            }
+            return this;
+        } catch (TimeoutException e) {
+            return new CTReportLoading(action);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // getDiff() tells that a report could not be loaded
+            return this;
+        }
+    }
+
+    /**
+     * Compares with another build of the job.
+     * @param token build number
+     * @param req Stapler request
+     * @param rsp Stapler response
+     * @return the changes since that build, or null if it has no report
+     */
+    public @CheckForNull CTCoverageChanges getDynamic(String token, StaplerRequest req, StaplerResponse rsp) {
+        try {
+            Run<?, ?> other = getBuild().getParent().getBuildByNumber(Integer.parseInt(token));
+            CTBuildAction a = other != null ? other.getAction(CTBuildAction.class) : null;
+            return a != null ? new CTCoverageChanges(action, a) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the differences, null if there is no build to compare with or one of the reports
+     *         is not loaded or cannot be loaded
+     */
+    public @CheckForNull CoverageDiff getDiff() {
+        if (baseline == null) {
+            return null;
+        }
+        String key = baseline.getOwner().getRootDir().getPath() + '\n' + getBuild().getRootDir().getPath();
+        synchronized (DIFFS) {
+            CoverageDiff diff = DIFFS.get(key);
+            if (diff != null) {
+                return diff;
+            }
+        }
+        CoverageReport before = loaded(baseline);
+        CoverageReport after = loaded(action);
+        if (before == null || after == null) {
+            return null;
+        }
+        CoverageDiff diff = CoverageDiff.compare(before, after);
+        synchronized (DIFFS) {
+            DIFFS.put(key, diff);
+        }
+        return diff;
+    }
+
+    /**
+     * @return the report of the build if it is loaded, never waiting for it
+     */
+    private static @CheckForNull CoverageReport loaded(CTBuildAction a) {
+        Future<CoverageReport> f = a.getResultAsync();
+        if (!f.isDone()) {
+            return null;
+        }
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Drops the differences a build is part of.
+     * @param build root directory of the build
+     */
+    static void invalidate(String build) {
+        synchronized (DIFFS) {
+            for (Iterator<String> it = DIFFS.keySet().iterator(); it.hasNext();) {
+                String key = it.next();
+                if (key.startsWith(build + '\n') || key.endsWith('\n' + build)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the functions that lost coverage, at most {@link #PAGE_LIMIT} of them
+     */
+    public List<CoverageDiff.Function> getLosses() {
+        List<CoverageDiff.Function> losses = new ArrayList<>();
+        CoverageDiff diff = getDiff();
+        if (diff != null) {
+            for (CoverageDiff.Function f : diff.getFunctions()) {
+                if (f.isLoss() && losses.size() < PAGE_LIMIT) {
+                    losses.add(f);
+                }
+            }
+        }
+        return losses;
+    }
+
+    /**
+     * @param counters counters of a function, see {@link CoverageDiff.Function#getBefore()}
+     * @param type index of the type in {@link CoverageDiff#TYPES}
+     * @return percentage and counts for the page, empty for a type without coverage
+     */
+    public static String format(int[] counters, int type) {
+        if (counters == null || counters[2 * type] < 0) {
+            return "";
+        }
+        int missed = counters[2 * type];
+        int covered = counters[2 * type + 1];
+        return String.format(Locale.ENGLISH, "%.1f%% (%d/%d)", Coverage.getPercentageFloat(missed, covered), covered, missed + covered);
+    }
+
+    /**
+     * @param function a function
+     * @return the numbers of its lines that lost coverage, separated by commas
+     */
+    public static String formatLostLines(CoverageDiff.Function function) {
+        StringBuilder buf = new StringBuilder();
+        for (CoverageDiff.Line line : function.getLines()) {
+            if (line.isLoss()) {
+                if (buf.length() > 0) {
+                    buf.append(", ");
+                }
+                buf.append(line.getNr());
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Serves the differences as JSON.
+     * <p>
+     * Parameters: {@code filter} ({@code loss} for the functions that lost coverage,
+     * otherwise all functions that changed), {@code offset} and {@code limit}.
+     * @param req Stapler request
+     * @param rsp Stapler response
+     * @throws IOException if any I/O error occurs
+     */
+    @SuppressWarnings({"lgtm[jenkins/no-permission-check]", "lgtm[jenkins/csrf]"})
+    public void doJson(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        boolean lossOnly = "loss".equalsIgnoreCase(req.getParameter("filter"));
+        int offset = Math.max(0, parseInt(req.getParameter("offset"), 0));
+        int limit = Math.min(MAX_JSON_LIMIT, Math.max(1, parseInt(req.getParameter("limit"), JSON_LIMIT)));
+
+        Run<?, ?> base = getBaselineBuild();
+        JSONObject json = new JSONObject()
+                .element("build", getBuild().getNumber())
+                .element("baseline", base != null ? (Object) base.getNumber() : null);
+        CoverageDiff diff = getDiff();
+        JSONArray functions = new JSONArray();
+        int matches = 0;
+        if (diff != null) {
+            for (CoverageDiff.Function f : diff.getFunctions()) {
+                if (lossOnly && !f.isLoss()) {
+                    continue;
+                }
+                if (matches >= offset && matches < offset + limit) {
+                    functions.element(toJson(f));
+                }
+                matches++;
+            }
+            json.element("added", diff.getAdded())
+                    .element("removed", diff.getRemoved())
+                    .element("losses", diff.getLosses());
+        }
+        json.element("matches", matches)
+                .element("offset", offset)
+                .element("limit", limit)
+                .element("functions", functions);
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print(json.toString());
+    }
+
+    static JSONObject toJson(CoverageDiff.Function f) {
+        JSONObject json = new JSONObject()
+                .element("name", f.getName())
+                .element("source", f.getSource())
+                .element("change", f.getChange().name().toLowerCase(Locale.ENGLISH))
+                .element("loss", f.isLoss());
+        if (f.getBefore() != null) {
+            json.element("before", countersToJson(f.getBefore()));
+        }
+        if (f.getAfter() != null) {
+            json.element("after", countersToJson(f.getAfter()));
+        }
+        JSONArray lines = new JSONArray();
+        for (CoverageDiff.Line line : f.getLines()) {
+            JSONObject l = new JSONObject().element("nr", line.getNr());
+            if (line.getBefore() != null) {
+                l.element("before", lineToJson(line.getBefore()));
+            }
+            if (line.getAfter() != null) {
+                l.element("after", lineToJson(line.getAfter()));
+            }
+            lines.element(l);
+        }
+        return json.element("lines", lines);
+    }
+
+    private static JSONObject countersToJson(int[] counters) {
+        JSONObject json = new JSONObject();
+        for (int t = 0; t < CoverageDiff.TYPES.length; t++) {
+            if (counters[2 * t] >= 0) {
+                json.element(CoverageDiff.TYPES[t].name().toLowerCase(Locale.ENGLISH), new JSONObject()
+                        .element("missed", counters[2 * t])
+                        .element("covered", counters[2 * t + 1]));
+            }
+        }
+        return json;
+    }
+
+    private static JSONObject lineToJson(int[] row) {
+        return new JSONObject()
+                .element("ms", row[0])
+                .element("cs", row[1])
+                .element("mb", row[2])
+                .element("cb", row[3]);
+    }
+
+    private static int parseInt(String s, int defaultValue) {
+        try {
+            return s != null ? Integer.parseInt(s) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
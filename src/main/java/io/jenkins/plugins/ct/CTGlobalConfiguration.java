@@ -0,0 +1,82 @@
+package io.jenkins.plugins.ct;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.StaplerRequest;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import jenkins.model.GlobalConfiguration;
+import net.sf.json.JSONObject;
+
+/**
+ * Controller wide settings of the plugin, on the global configuration page.
+ *
+ * @author Jang Hyo Jae
+ */
+@Extension @Symbol("ctCoverage")
+public class CTGlobalConfiguration extends GlobalConfiguration {
+
+    /**
+     * Budget of {@link CTReportCache} in MB.
+     */
+    private int cacheSize = CTReportCache.DEFAULT_SIZE;
+    private CTReportCache.Policy cachePolicy = CTReportCache.Policy.LRU;
+
+    public CTGlobalConfiguration() {
+        load();
+        apply();
+    }
+
+    /**
+     * @return the configuration of this controller
+     */
+    public static CTGlobalConfiguration get() {
+        return ExtensionList.lookupSingleton(CTGlobalConfiguration.class);
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+        return Messages.GlobalConfiguration_DisplayName();
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    @DataBoundSetter
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = Math.max(0, cacheSize);
+    }
+
+    public CTReportCache.Policy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    @DataBoundSetter
+    public void setCachePolicy(CTReportCache.Policy cachePolicy) {
+        this.cachePolicy = cachePolicy != null ? cachePolicy : CTReportCache.Policy.LRU;
+    }
+
+    /**
+     * @return the cache, for its counters on the configuration page
+     */
+    public CTReportCache getCache() {
+        return CTReportCache.get();
+    }
+
+    @Override
+    public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        req.bindJSON(this, json);
+        save();
+        apply();
+        return true;
+    }
+
+    private void apply() {
+        CTReportCache.get().configure(cacheSize * 1024L * 1024L, cachePolicy);
+    }
+}
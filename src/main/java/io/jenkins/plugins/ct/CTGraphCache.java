@@ -0,0 +1,280 @@
+package io.jenkins.plugins.ct;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.Util;
+
+/**
+ * Rendered trend graphs, so the graphs on the job and build pages are not drawn again
+ * for every page load. The trends the browser draws itself are kept the same way, as JSON.
+ * <p>
+ * A graph is identified by its job and a key the caller builds from everything the
+ * image depends on: the last build of the job, the size and the layout. Images are kept
+ * in the {@value #DIR} directory of the job and the most recently used ones also in
+ * memory. Attaching a {@link CTBuildAction} to a build of the job drops its images.
+ * <p>
+ * Images are served with an ETag derived from the key and the image itself, so a graph
+ * drawn again after a build completed or was deleted gets a new ETag, and the time they
+ * were rendered as Last-Modified; a request whose If-None-Match names the ETag gets
+ * 304 Not Modified.
+ * The number of images kept in memory can be set with the system property
+ * {@code io.jenkins.plugins.ct.CTGraphCache.entries}, the number of files kept for
+ * each job with {@code io.jenkins.plugins.ct.CTGraphCache.files}; the least recently
+ * rendered files are deleted first.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CTGraphCache {
+    static final String DIR = "ct-graphs";
+
+    private static final int ENTRIES = Math.max(0, Integer.getInteger(CTGraphCache.class.getName() + ".entries", 64));
+    private static final int FILES = Math.max(1, Integer.getInteger(CTGraphCache.class.getName() + ".files", 100));
+
+    private static final CTGraphCache INSTANCE = new CTGraphCache(ENTRIES, FILES);
+
+    static final String PNG = "image/png";
+    static final String JSON = "application/json;charset=UTF-8";
+
+    /**
+     * A rendered graph, or trend.
+     */
+    public static final class Image {
+        private final byte[] data;
+        private final String contentType;
+        private final String etag;
+        private final long lastModified;
+
+        Image(byte[] data, String contentType, String etag, long lastModified) {
+            this.data = data;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        int getLength() {
+            return data.length;
+        }
+
+        /**
+         * Sends the image, or 304 Not Modified if the client has it already.
+         *
+         * @param req request, its If-None-Match header is checked
+         * @param rsp response
+         * @throws IOException if the image cannot be sent
+         */
+        public void serve(StaplerRequest req, StaplerResponse rsp) throws IOException {
+            rsp.setHeader("ETag", etag);
+            rsp.setDateHeader("Last-Modified", lastModified);
+            // revalidate every time, a new build changes the graph of the job
+            rsp.setHeader("Cache-Control", "no-cache");
+            if (matches(req.getHeader("If-None-Match"))) {
+                rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            rsp.setContentType(contentType);
+            rsp.setContentLength(data.length);
+            try (OutputStream os = rsp.getOutputStream()) {
+                os.write(data);
+            }
+        }
+
+        boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final int entries;
+    private final int files;
+    private final Map<String, Image> images = new LinkedHashMap<>(16, 0.75f, true);
+
+    CTGraphCache(int entries) {
+        this(entries, FILES);
+    }
+
+    CTGraphCache(int entries, int files) {
+        this.entries = entries;
+        this.files = files;
+    }
+
+    /**
+     * @return the cache of this controller
+     */
+    public static CTGraphCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a graph, rendering it if it is neither in memory nor on disk.
+     *
+     * @param jobDir root directory of the job
+     * @param key everything the image depends on besides the job
+     * @param renderer draws the image as PNG
+     * @return the image
+     * @throws IOException if the image cannot be rendered
+     */
+    public Image get(File jobDir, String key, Callable<byte[]> renderer) throws IOException {
+        return get(jobDir, key, PNG, renderer);
+    }
+
+    /**
+     * Returns a trend, computing it if it is neither in memory nor on disk.
+     *
+     * @param jobDir root directory of the job
+     * @param key everything the trend depends on besides the job
+     * @param renderer computes the trend as UTF-8 encoded JSON
+     * @return the trend
+     * @throws IOException if the trend cannot be computed
+     */
+    public Image getJson(File jobDir, String key, Callable<byte[]> renderer) throws IOException {
+        return get(jobDir, key, JSON, renderer);
+    }
+
+    private Image get(File jobDir, String key, String contentType, Callable<byte[]> renderer) throws IOException {
+        key = contentType + '\n' + key;
+        String id = jobDir.getPath() + '\n' + key;
+        synchronized (this) {
+            Image image = images.get(id);
+            if (image != null) {
+                return image;
+            }
+        }
+
+        String hash = hash(key);
+        File file = new File(new File(jobDir, DIR), hash + (contentType.equals(PNG) ? ".png" : ".json"));
+        Image image;
+        if (file.isFile()) {
+            byte[] png = Files.readAllBytes(file.toPath());
+            image = new Image(png, contentType, etag(key, png), file.lastModified());
+        } else {
+            byte[] png;
+            try {
+                png = renderer.call();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            image = new Image(png, contentType, etag(key, png), store(file, png));
+        }
+
+        synchronized (this) {
+            images.put(id, image);
+            Iterator<String> it = images.keySet().iterator();
+            while (images.size() > entries && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        return image;
+    }
+
+    private static String etag(String key, byte[] png) {
+        return '"' + hash(key + '\n' + hash(png)) + '"';
+    }
+
+    /**
+     * Writes an image, keeping the one in memory if that fails, and deletes the oldest
+     * files of the job beyond the limit.
+     *
+     * @return the time the image was rendered
+     */
+    private long store(File file, byte[] png) {
+        long now = System.currentTimeMillis();
+        try {
+            File dir = file.getParentFile();
+            Files.createDirectories(dir.toPath());
+            File tmp = File.createTempFile("graph", ".tmp", dir);
+            Files.write(tmp.toPath(), png);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            File[] stored = dir.listFiles((d, name) -> !name.endsWith(".tmp"));
+            if (stored != null && stored.length > files) {
+                Arrays.sort(stored, Comparator.comparingLong(File::lastModified));
+                int excess = stored.length - files;
+                for (int i = 0; i < stored.length && excess > 0; i++) {
+                    if (!stored[i].equals(file)) {
+                        stored[i].delete();
+                        excess--;
+                    }
+                }
+            }
+            return file.lastModified();
+        } catch (IOException e) {
+            return now;
+        }
+    }
+
+    /**
+     * Drops the images and trends of a job, after a build of it recorded coverage.
+     *
+     * @param jobDir root directory of the job
+     */
+    public void invalidate(File jobDir) {
+        String prefix = jobDir.getPath() + '\n';
+        synchronized (this) {
+            images.keySet().removeIf(id -> id.startsWith(prefix));
+        }
+        File dir = new File(jobDir, DIR);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                // a file that is being read is replaced with the next rendering
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * @return number of images in memory
+     */
+    synchronized int getCount() {
+        return images.size();
+    }
+
+    static String hash(String key) {
+        return hash(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Util.toHexString(digest.digest(bytes)).substring(0, 32);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -128,9 +128,11 @@ public class CTHealthReportThresholds implements Serializable {
 	}
 
 	public  RESULT getResultByTypeAndRatio(Coverage ratio) {
+		return getResultByTypeAndPercentage(ratio.getType(), ratio.getPercentageFloat());
+	}
+
+	public  RESULT getResultByTypeAndPercentage(Type covType, float percentage) {
 		RESULT result = RESULT.ABOVEMAXIMUM;
-		Type covType = ratio.getType();
-		float percentage = ratio.getPercentageFloat();
 
 		if (covType == Type.BRANCH) {
 			if (percentage < minBranch) {
@@ -0,0 +1,223 @@
+package io.jenkins.plugins.ct;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import io.jenkins.plugins.ct.model.CoverageElement;
+import io.jenkins.plugins.ct.model.CoverageObject;
+import io.jenkins.plugins.ct.report.CoverageReport;
+import io.jenkins.plugins.ct.report.MethodReport;
+
+/**
+ * The coverage of every function of a job, build by build, so the trend graph of a
+ * function does not load the reports of earlier builds.
+ * <p>
+ * Each published build gets one file in the {@value #DIR} directory of the job, named
+ * after the build number. A function is identified by a 64 bit hash of its name and
+ * source file; the file holds the sorted hashes followed by one column per counter,
+ * the missed and covered counts of the types in {@link CTTrendIndex#TYPES}. Finding a
+ * function in a build is a binary search over the hash column and one read of its row,
+ * so its history costs a few small reads per build. The builds that count are those of
+ * the {@link CTTrendIndex}; deleting a build deletes its file.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CTMethodHistory {
+    static final String DIR = "ct-history";
+    private static final int MAGIC = 0x43544831;
+    private static final int HEADER = 8;
+    private static final int COUNTERS = 2 * CTTrendIndex.TYPES.length;
+    private static final int UNKNOWN = -1;
+
+    private final File dir;
+
+    CTMethodHistory(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @param job the job
+     * @return the function history of the job
+     */
+    public static CTMethodHistory of(Job<?, ?> job) {
+        return new CTMethodHistory(new File(job.getRootDir(), DIR));
+    }
+
+    /**
+     * @param name function name
+     * @param source source file, may be null
+     * @return the identity of the function across builds
+     */
+    static long key(String name, String source) {
+        // FNV-1a
+        long h = 0xcbf29ce484222325L;
+        String s = name + '\0' + (source != null ? source : "");
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    static long key(MethodReport method) {
+        return key(method.getName(), method.getSource());
+    }
+
+    private File file(int number) {
+        return new File(dir, number + ".bin");
+    }
+
+    /**
+     * Records the functions of a published build.
+     *
+     * @param number build number
+     * @param report the report of the build
+     * @throws IOException if the file cannot be written
+     */
+    public void record(int number, CoverageReport report) throws IOException {
+        MethodReport[] methods = report.getChildren().values().toArray(new MethodReport[0]);
+        int n = methods.length;
+        long[] keys = new long[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = key(methods[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        ByteBuffer data = ByteBuffer.allocate(HEADER + n * (8 + 4 * COUNTERS));
+        data.putInt(MAGIC).putInt(n);
+        for (int i = 0; i < n; i++) {
+            data.putLong(keys[order[i]]);
+        }
+        for (CoverageElement.Type type : CTTrendIndex.TYPES) {
+            for (int i = 0; i < n; i++) {
+                MethodReport m = methods[order[i]];
+                data.putInt(m.hasCoverage(type) ? m.getMissed(type) : UNKNOWN);
+            }
+            for (int i = 0; i < n; i++) {
+                MethodReport m = methods[order[i]];
+                data.putInt(m.hasCoverage(type) ? m.getCovered(type) : UNKNOWN);
+            }
+        }
+
+        Files.createDirectories(dir.toPath());
+        File tmp = new File(dir, number + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+            os.write(data.array());
+        }
+        Files.move(tmp.toPath(), file(number).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Drops a deleted build.
+     *
+     * @param number build number
+     * @throws IOException if the file cannot be deleted
+     */
+    public void remove(int number) throws IOException {
+        Files.deleteIfExists(file(number).toPath());
+    }
+
+    /**
+     * Reads the counters of one function in one build.
+     *
+     * @param number build number
+     * @param key identity of the function
+     * @return missed and covered count per type, {@link #UNKNOWN} for types without coverage;
+     *         null if the build was not recorded or has no such function
+     * @throws IOException if the file cannot be read
+     */
+    int[] read(int number, long key) throws IOException {
+        try (FileChannel ch = FileChannel.open(file(number).toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(8);
+            read(ch, buf, 0);
+            if (buf.getInt() != MAGIC) {
+                throw new IOException("Not a coverage history: " + file(number));
+            }
+            int n = buf.getInt();
+            int low = 0;
+            int high = n - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                buf.clear();
+                read(ch, buf, HEADER + 8L * mid);
+                long value = buf.getLong();
+                if (value < key) {
+                    low = mid + 1;
+                } else if (value > key) {
+                    high = mid - 1;
+                } else {
+                    int[] counters = new int[COUNTERS];
+                    ByteBuffer cell = ByteBuffer.allocate(4);
+                    for (int c = 0; c < COUNTERS; c++) {
+                        cell.clear();
+                        read(ch, cell, HEADER + 8L * n + 4L * ((long) c * n + mid));
+                        counters[c] = cell.getInt();
+                    }
+                    return counters;
+                }
+            }
+            return null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static void read(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buf.flip();
+    }
+
+    /**
+     * The trend graph of a function up to a build: one point for each earlier build of
+     * the {@link CTTrendIndex} that recorded the function, and one for the function itself.
+     *
+     * @param run the build of the function
+     * @param method the function
+     * @return the point of the given build, linked to the earlier ones
+     * @throws IOException if the trend or the history cannot be read
+     */
+    public CTTrendIndex.Point getTrendHead(Run<?, ?> run, MethodReport method) throws IOException {
+        return getTrendHead(CTTrendIndex.of(run.getParent()).getPoints(), run.getNumber(), run.getTimeInMillis(), method);
+    }
+
+    CTTrendIndex.Point getTrendHead(List<CTTrendIndex.Point> builds, int number, long timestamp, CoverageObject<?> method) throws IOException {
+        long key = method instanceof MethodReport ? key((MethodReport) method) : 0;
+        List<CTTrendIndex.Point> points = new ArrayList<>();
+        for (CTTrendIndex.Point build : builds) {
+            if (build.getNumber() >= number) {
+                break;
+            }
+            int[] counters = read(build.getNumber(), key);
+            if (counters != null) {
+                CTTrendIndex.Point p = new CTTrendIndex.Point(build.getNumber(), build.getTimestamp());
+                for (int t = 0; t < CTTrendIndex.TYPES.length; t++) {
+                    if (counters[2 * t] != UNKNOWN) {
+                        p.setCounter(CTTrendIndex.TYPES[t], counters[2 * t], counters[2 * t + 1]);
+                    }
+                }
+                points.add(p);
+            }
+        }
+        points.add(CTTrendIndex.point(number, timestamp, method));
+        return CTTrendIndex.chain(points);
+    }
+}
@@ -5,6 +5,7 @@ import hudson.model.Job;
 import hudson.model.Result;
 import hudson.model.Run;
 import io.jenkins.plugins.ct.Messages;
+import io.jenkins.plugins.ct.model.CoverageObject;
 
 import java.io.IOException;
 
@@ -52,8 +53,26 @@ public final class CTProjectAction implements Action {
 
     @SuppressWarnings({"lgtm[jenkins/no-permission-check]", "lgtm[jenkins/csrf]"})
     public void doGraph(StaplerRequest req, StaplerResponse rsp) throws IOException {
-       if (getLastResult() != null)
-          getLastResult().doGraph(req,rsp);
+       CTTrendIndex.Point last = CTTrendIndex.of(project).getLast();
+       if (last != null)
+          last.doGraph(req,rsp);
+    }
+
+    /**
+     * Serves the coverage trend of the job as JSON, see {@link CoverageObject#doTrend(StaplerRequest, StaplerResponse)}.
+     * @param req Stapler request
+     * @param rsp Stapler response
+     * @throws IOException if any I/O error occurs
+     */
+    @SuppressWarnings({"lgtm[jenkins/no-permission-check]", "lgtm[jenkins/csrf]"})
+    public void doTrend(StaplerRequest req, StaplerResponse rsp) throws IOException {
+       CTTrendIndex.Point last = CTTrendIndex.of(project).getLast();
+       if (last != null) {
+          last.doTrend(req, rsp);
+       } else {
+          rsp.setContentType("application/json;charset=UTF-8");
+          rsp.getWriter().print("{\"builds\":[]}");
+       }
     }
 
     //private static final Logger logger = Logger.getLogger(JacocoBuildAction.class.getName());
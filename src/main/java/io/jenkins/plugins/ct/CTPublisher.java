@@ -16,14 +16,21 @@ import io.jenkins.cli.shaded.org.apache.commons.lang.StringUtils;
 import io.jenkins.plugins.ct.Messages;
 import io.jenkins.plugins.ct.portlet.bean.CTDeltaCoverageResultSummary;
 import io.jenkins.plugins.ct.portlet.utils.Utils;
+import io.jenkins.plugins.ct.model.Coverage;
+import io.jenkins.plugins.ct.model.CoverageElement;
 import io.jenkins.plugins.ct.report.CoverageReport;
+import io.jenkins.plugins.ct.report.ReportSnapshot;
+import io.jenkins.plugins.ct.report.StaticReport;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -75,6 +82,10 @@ public class CTPublisher extends Recorder implements SimpleBuildStep {
     private String sourceInclusionPattern;
     private String sourceExclusionPattern;
     private boolean skipCopyOfSrcFiles; // Added for enabling/disabling copy of source files
+    private boolean summarizeOnAgent; // Parse the reports on the agent instead of the controller
+    private boolean deduplicateSources; // Store source files once per job instead of once per build
+    private boolean referencedSourcesOnly; // Only archive the source files named in the reports
+    private boolean staticHtml; // Render the report pages once when the build is published
 
     private String minimumInstructionCoverage;
     private String minimumBranchCoverage;
@@ -114,6 +125,10 @@ public class CTPublisher extends Recorder implements SimpleBuildStep {
         this.sourceInclusionPattern = "**/*.java,**/*.groovy,**/*.kt,**/*.kts";
         this.sourceExclusionPattern = "";
         this.skipCopyOfSrcFiles = false;
+        this.summarizeOnAgent = false;
+        this.deduplicateSources = true;
+        this.referencedSourcesOnly = false;
+        this.staticHtml = false;
         this.minimumInstructionCoverage = "0";
         this.minimumBranchCoverage = "0";
         this.minimumComplexityCoverage = "0";
@@ -187,6 +202,10 @@ public class CTPublisher extends Recorder implements SimpleBuildStep {
 				+ ", sourcePattern=" + sourcePattern
 				+ ", sourceExclusionPattern=" + sourceExclusionPattern
 				+ ", sourceInclusionPattern=" + sourceInclusionPattern
+				+ ", summarizeOnAgent=" + summarizeOnAgent
+				+ ", deduplicateSources=" + deduplicateSources
+				+ ", referencedSourcesOnly=" + referencedSourcesOnly
+				+ ", staticHtml=" + staticHtml
 				+ ", minimumInstructionCoverage=" + minimumInstructionCoverage
 				+ ", minimumBranchCoverage=" + minimumBranchCoverage
 				+ ", minimumComplexityCoverage=" + minimumComplexityCoverage
@@ -238,6 +257,22 @@ public class CTPublisher extends Recorder implements SimpleBuildStep {
         return skipCopyOfSrcFiles;
     }
 
+    public boolean isSummarizeOnAgent() {
+        return summarizeOnAgent;
+    }
+
+    public boolean isDeduplicateSources() {
+        return deduplicateSources;
+    }
+
+    public boolean isReferencedSourcesOnly() {
+        return referencedSourcesOnly;
+    }
+
+    public boolean isStaticHtml() {
+        return staticHtml;
+    }
+
 	public String getMinimumInstructionCoverage() {
 		return minimumInstructionCoverage;
 	}
@@ -375,6 +410,26 @@ public class CTPublisher extends Recorder implements SimpleBuildStep {
         this.skipCopyOfSrcFiles = skipCopyOfSrcFiles;
     }
 
+    @DataBoundSetter
+    public void setSummarizeOnAgent(boolean summarizeOnAgent) {
+        this.summarizeOnAgent = summarizeOnAgent;
+    }
+
+    @DataBoundSetter
+    public void setDeduplicateSources(boolean deduplicateSources) {
+        this.deduplicateSources = deduplicateSources;
+    }
+
+    @DataBoundSetter
+    public void setReferencedSourcesOnly(boolean referencedSourcesOnly) {
+        this.referencedSourcesOnly = referencedSourcesOnly;
+    }
+
+    @DataBoundSetter
+    public void setStaticHtml(boolean staticHtml) {
+        this.staticHtml = staticHtml;
+    }
+
     @DataBoundSetter
     public void setMinimumInstructionCoverage(String minimumInstructionCoverage) {
         this.minimumInstructionCoverage = minimumInstructionCoverage;
@@ -568,11 +623,14 @@ public class CTPublisher extends Recorder implements SimpleBuildStep {
         List<FilePath> matchedExecFiles = Arrays.asList(filePath.list(resolveFilePaths(run, taskListener, execPattern, env)));
         logger.println("[CT plugin] Number of found exec files for pattern " + execPattern + ": " + matchedExecFiles.size());
         logger.print("[CT plugin] Saving matched execfiles: ");
-        reportDir.addExecFiles(matchedExecFiles);
+        CTTransfer transfer = new CTTransfer(filePath);
+        reportDir.addExecFiles(transfer, matchedExecFiles);
         logger.print(" " + matchedExecFiles.stream().map(Object::toString).collect(Collectors.joining(" ")));
+
         final String warning = "\n[CT plugin] WARNING: You are using directory patterns with trailing /, /* or /** . This will most likely" +
                 " multiply the copied files in your build directory. Check the list below and ignore this warning if you know what you are doing.";
 
+        CTSourceStore.Upload upload = null;
         // Use skipCopyOfSrcFiles flag to determine if the source files should be copied or skipped. If skipped display appropriate logger message.
         if(!this.skipCopyOfSrcFiles) {
             FilePath[] matchedSrcDirs = resolveDirPaths(filePath, taskListener, sourcePattern);
@@ -584,20 +642,67 @@ public class CTPublisher extends Recorder implements SimpleBuildStep {
                 logger.print(warning);
             }
 
-            for (FilePath dir : matchedSrcDirs) {
-                int copied = reportDir.saveSourcesFrom(dir, sourceInclusionPattern, sourceExclusionPattern);
-                logger.print("\n[CT plugin] - " + dir + " " + copied + " files");
+            long start = System.currentTimeMillis();
+            if (referencedSourcesOnly) {
+                List<String> reports = matchedExecFiles.stream().map(FilePath::getRemote).collect(Collectors.toList());
+                upload = new CTSourceStore(run.getParent().getRootDir())
+                        .prepareReferenced(reportDir, filePath, reports, Arrays.asList(matchedSrcDirs));
+                logger.print("\n[CT plugin] - " + upload.getFileCount() + " files referenced by the reports");
+            } else if (deduplicateSources) {
+                upload = new CTSourceStore(run.getParent().getRootDir())
+                        .prepare(reportDir, Arrays.asList(matchedSrcDirs), sourceInclusionPattern, sourceExclusionPattern);
+                logger.print("\n[CT plugin] - " + matchedSrcDirs.length + " directories, " + upload.getFileCount() + " files");
+            } else {
+                for (FilePath dir : matchedSrcDirs) {
+                    reportDir.saveSourcesFrom(transfer, dir, sourceInclusionPattern, sourceExclusionPattern);
+                    logger.print("\n[CT plugin] - " + dir);
+                }
+            }
+            if (upload != null) {
+                logger.print("\n[CT plugin] Hashed the sources in " + (System.currentTimeMillis() - start) + " ms");
             }
         }
         else{
             logger.print("\n[CT plugin] Skipping save of matched source directories for source-pattern: " + sourcePattern);
         }
 
+        try {
+            if (upload != null) {
+                upload.addTo(transfer);
+            }
+            transfer.run();
+            logger.print("\n[CT plugin] Transferred " + transfer.getFileCount() + " files (" + transfer.getByteCount()
+                    + " bytes) in " + transfer.getMillis() + " ms");
+            if (upload != null) {
+                long start = System.currentTimeMillis();
+                int copied = upload.commit();
+                logger.print("\n[CT plugin] Stored " + copied + " new files in the job's source store in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        } finally {
+            if (upload != null) {
+                upload.close();
+            }
+        }
+
+        AgentSummary agentSummary = null;
+        if (summarizeOnAgent) {
+            logger.print("\n[CT plugin] Parsing the reports on the agent..");
+            long start = System.currentTimeMillis();
+            List<String> remotePaths = matchedExecFiles.stream().map(FilePath::getRemote).collect(Collectors.toList());
+            agentSummary = filePath.act(new SummarizeReports(remotePaths));
+            reportDir.saveSnapshot(agentSummary.getSnapshot());
+            logger.print("\n[CT plugin] Received a snapshot of " + agentSummary.getSnapshot().length + " bytes in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+
         logger.println("\n[CT plugin] Loading inclusions files..");
         String[] includes = {};
         String[] excludes = {};
         
-        final CTBuildAction action = CTBuildAction.load(healthReports, taskListener, reportDir, includes, excludes);
+        final CTBuildAction action = agentSummary != null
+                ? new CTBuildAction(agentSummary.getRatios(), reportDir, healthReports, taskListener, includes, excludes)
+                : CTBuildAction.load(healthReports, taskListener, reportDir, includes, excludes);
         action.getThresholds().ensureValid();
         logger.println("[CT plugin] Thresholds: " + action.getThresholds());
         run.addAction(action);
@@ -639,6 +744,20 @@ public class CTPublisher extends Recorder implements SimpleBuildStep {
             if(changeBuildStatus || buildOverBuild) {
                 run.setResult(Utils.applyLogicalAnd(applyMinMaxTh, applyDeltaTh));
             }
+            if (staticHtml) {
+                long start = System.currentTimeMillis();
+                try {
+                    int pages = StaticReport.render(result, reportDir.getStaticHtmlDir());
+                    logger.println("[CT plugin] Rendered " + pages + " static pages in " + (System.currentTimeMillis() - start) + " ms");
+                } catch (IOException e) {
+                    logger.println("[CT plugin] WARNING: Could not render the static pages: " + e);
+                }
+            }
+            try {
+                CTMethodHistory.of(run.getParent()).record(run.getNumber(), result);
+            } catch (IOException e) {
+                logger.println("[CT plugin] WARNING: Could not record the function history: " + e);
+            }
         }
     }
 
@@ -821,6 +940,61 @@ public class CTPublisher extends Recorder implements SimpleBuildStep {
 
     }
     
+    /**
+     * Report level counters and the {@link ReportSnapshot} of the matched reports,
+     * computed on the agent by {@link SummarizeReports}.
+     */
+    static final class AgentSummary implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final Map<CoverageElement.Type, Coverage> ratios;
+        private final byte[] snapshot;
+
+        AgentSummary(Map<CoverageElement.Type, Coverage> ratios, byte[] snapshot) {
+            this.ratios = ratios;
+            this.snapshot = snapshot;
+        }
+
+        Map<CoverageElement.Type, Coverage> getRatios() {
+            return ratios;
+        }
+
+        byte[] getSnapshot() {
+            return snapshot;
+        }
+    }
+
+    /**
+     * Parses the XML reports where they were produced, so that the controller only
+     * receives the summary counters and a ready-made snapshot.
+     */
+    static final class SummarizeReports extends MasterToSlaveFileCallable<AgentSummary> {
+        private static final long serialVersionUID = 1L;
+        private final List<String> reports;
+
+        SummarizeReports(List<String> reports) {
+            this.reports = new ArrayList<>(reports);
+        }
+
+        public AgentSummary invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+            List<File> files = new ArrayList<>(reports.size());
+            for (String report : reports) {
+                files.add(new File(report));
+            }
+            CoverageReport report = CTReportLoader.load(null, files);
+
+            Map<CoverageElement.Type, Coverage> ratios = new LinkedHashMap<>();
+            for (CoverageElement.Type type : CoverageElement.Type.values()) {
+                Coverage c = type.getAssociatedRatio(report);
+                if (c.isInitialized()) {
+                    ratios.put(type, new Coverage(c.getMissed(), c.getCovered()));
+                }
+            }
+            ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+            ReportSnapshot.write(report, snapshot);
+            return new AgentSummary(ratios, snapshot.toByteArray());
+        }
+    }
+
     //private static final Logger logger = Logger.getLogger(JacocoPublisher.class.getName());
 
 	public String getClassPattern() {
@@ -0,0 +1,215 @@
+package io.jenkins.plugins.ct;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+import io.jenkins.plugins.ct.report.CoverageReport;
+
+/**
+ * Loaded {@link CoverageReport}s of all builds, kept within a budget of bytes.
+ * <p>
+ * A report is the root of its function and line reports, so caching the roots
+ * serves every page of a report. Sizes are estimated with
+ * {@link CoverageReport#getEstimatedSize()}; when the sum exceeds the budget, reports
+ * are evicted by the configured {@link Policy}. The report added last is always kept,
+ * even if it alone is larger than the budget, so the pages of one big report do not
+ * parse it again for every request.
+ * <p>
+ * There is one cache per controller, configured on the global configuration page,
+ * see {@link CTGlobalConfiguration}.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CTReportCache {
+
+    /**
+     * Which report to evict first.
+     */
+    public enum Policy {
+        /**
+         * The report not used for the longest time.
+         */
+        LRU,
+        /**
+         * The report used the least often since it was loaded; of equally used ones,
+         * the one not used for the longest time.
+         */
+        LFU
+    }
+
+    /**
+     * Default budget in MB, an eighth of the maximum heap.
+     */
+    public static final int DEFAULT_SIZE = (int) Math.max(1, Runtime.getRuntime().maxMemory() / 8 / (1024 * 1024));
+
+    private static final CTReportCache INSTANCE = new CTReportCache(DEFAULT_SIZE * 1024L * 1024L, Policy.LRU);
+
+    private static final class Entry {
+        final CoverageReport report;
+        final long size;
+        long uses;
+
+        Entry(CoverageReport report, long size) {
+            this.report = report;
+            this.size = size;
+        }
+    }
+
+    /**
+     * In order of last use, see {@link LinkedHashMap#LinkedHashMap(int, float, boolean)}.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long budget;
+    private Policy policy;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    CTReportCache(long budget, Policy policy) {
+        this.budget = budget;
+        this.policy = policy;
+    }
+
+    /**
+     * @return the cache of this controller
+     */
+    public static CTReportCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Changes budget and policy, evicting reports that no longer fit.
+     *
+     * @param budget maximum size in bytes
+     * @param policy eviction policy
+     */
+    public synchronized void configure(long budget, Policy policy) {
+        this.budget = Math.max(0, budget);
+        this.policy = policy != null ? policy : Policy.LRU;
+        evict();
+    }
+
+    /**
+     * @param key build the report belongs to
+     * @return the report, or null if it is not loaded
+     */
+    public synchronized @CheckForNull CoverageReport get(String key) {
+        Entry e = entries.get(key);
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        e.uses++;
+        return e.report;
+    }
+
+    /**
+     * Adds a loaded report, replacing an earlier one of the same build.
+     *
+     * @param key build the report belongs to
+     * @param report the report
+     */
+    public void put(String key, CoverageReport report) {
+        put(key, report, report.getEstimatedSize());
+    }
+
+    synchronized void put(String key, CoverageReport report, long reportSize) {
+        Entry old = entries.put(key, new Entry(report, reportSize));
+        if (old != null) {
+            size -= old.size;
+        }
+        size += reportSize;
+        evict();
+    }
+
+    /**
+     * Drops the report of a build, e.g. because the build was recorded again.
+     *
+     * @param key build the report belongs to
+     */
+    public synchronized void invalidate(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            size -= old.size;
+        }
+    }
+
+    /**
+     * Drops all reports. The counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    private void evict() {
+        while (size > budget && entries.size() > 1) {
+            Iterator<Entry> it = entries.values().iterator();
+            Entry victim = it.next();
+            if (policy == Policy.LFU) {
+                // the last entry is the one just used or added, never evict it
+                for (int i = entries.size() - 2; i > 0; i--) {
+                    Entry e = it.next();
+                    if (e.uses < victim.uses) {
+                        victim = e;
+                    }
+                }
+            }
+            for (Iterator<Entry> remove = entries.values().iterator(); remove.hasNext();) {
+                if (remove.next() == victim) {
+                    remove.remove();
+                    break;
+                }
+            }
+            size -= victim.size;
+            evictions++;
+        }
+    }
+
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    public synchronized Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return estimated size of the cached reports in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of cached reports
+     */
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return hits in percent of all lookups, 0 before the first lookup
+     */
+    public synchronized float getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : 100f * hits / lookups;
+    }
+}
@@ -2,10 +2,19 @@ package io.jenkins.plugins.ct;
 
 import hudson.FilePath;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
@@ -14,6 +23,10 @@ import edu.umd.cs.findbugs.annotations.NonNull;
  * @author Kohsuke Kawaguchi
  */
 public class CTReportDir {
+    private static final String REPORT = "coverage.xml";
+    private static final String COMPRESSED_REPORT = "coverage.xml.gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final File root;
 
     public CTReportDir(File rootDir) {
@@ -48,6 +61,26 @@ public class CTReportDir {
         return dir.copyRecursiveTo(inclusionMask, exclusionMask, d);
     }
 
+    /**
+     * Maps the source files archived for this build to their content in the job's {@link CTSourceStore}.
+     * @return the manifest file, which does not exist if the sources were copied to {@link #getSourcesDir()}.
+     */
+    public File getSourceManifestFile() {
+        return new File(root, "sources.manifest");
+    }
+
+    /**
+     * Registers the matching files of a source directory to be copied into {@link #getSourcesDir()}
+     * by the given transfer.
+     * @param transfer the transfer of the build
+     * @param dir the source directory
+     * @param inclusionMask comma separated patterns of the files to copy
+     * @param exclusionMask comma separated patterns of the files to skip, may be empty
+     */
+    public void saveSourcesFrom(@NonNull CTTransfer transfer, @NonNull FilePath dir, @NonNull String inclusionMask, @NonNull String exclusionMask) {
+        transfer.addMatching(dir, inclusionMask, exclusionMask, CTTransfer.into(getSourcesDir()));
+    }
+
     /**
      * Root directory that stores jacoco.exec files.
      * Each exec file is stored in its own directory.
@@ -60,8 +93,10 @@ public class CTReportDir {
     }
 
     /**
-     * Lists up existing jacoco.exec files.
-     * @return List of existing jacoco.exec files.
+     * Lists up existing XML reports.
+     * Reports are stored gzip compressed as {@code xmlN/coverage.xml.gz}; builds recorded
+     * before that still have a plain {@code xmlN/coverage.xml}. Use {@link #open(File)} to read either.
+     * @return List of existing XML reports.
      */
     public List<File> getXmlFiles() {
         List<File> r = new ArrayList<>();
@@ -69,13 +104,113 @@ public class CTReportDir {
         File root = getCoverageReportFilesDir();
         File checkPath;
         while ((checkPath = new File(root, "xml" + i)).exists()) {
-            r.add(new File(checkPath,"coverage.xml"));
+            File compressed = new File(checkPath, COMPRESSED_REPORT);
+            r.add(compressed.exists() ? compressed : new File(checkPath, REPORT));
             i++;
         }
 
         return r;
     }
 
+    /**
+     * Opens a report returned by {@link #getXmlFiles()}, decompressing it while it is read.
+     * @param xml the report file
+     * @return buffered stream of the XML content
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream open(File xml) throws IOException {
+        InputStream is = new FileInputStream(xml);
+        try {
+            if (xml.getName().endsWith(".gz")) {
+                return new BufferedInputStream(new GZIPInputStream(is, BUFFER_SIZE), BUFFER_SIZE);
+            }
+            return new BufferedInputStream(is, BUFFER_SIZE);
+        } catch (IOException e) {
+            is.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Compresses the plain {@code coverage.xml} files of builds recorded by older versions.
+     * The compressed file keeps the modification time of the original, so an existing
+     * snapshot stays valid.
+     * @return number of bytes saved
+     * @throws IOException if a file cannot be compressed
+     */
+    public long compressXmlFiles() throws IOException {
+        long saved = 0;
+        for (File xml : getXmlFiles()) {
+            if (!xml.getName().equals(REPORT)) {
+                continue;
+            }
+            File compressed = new File(xml.getParentFile(), COMPRESSED_REPORT);
+            File tmp = new File(xml.getParentFile(), COMPRESSED_REPORT + ".tmp");
+            try (OutputStream out = new GZIPOutputStream(new FileOutputStream(tmp), BUFFER_SIZE)) {
+                Files.copy(xml.toPath(), out);
+            }
+            Files.move(tmp.toPath(), compressed.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (!compressed.setLastModified(xml.lastModified())) {
+                throw new IOException("Failed to set the modification time of " + compressed);
+            }
+            saved += xml.length() - compressed.length();
+            Files.delete(xml.toPath());
+        }
+        return saved;
+    }
+
+    /**
+     * Pre-rendered, compressed HTML pages of the report.
+     * @return the directory, which only exists if the pages were rendered when the build was published.
+     *
+     * @see io.jenkins.plugins.ct.report.StaticReport
+     */
+    public File getStaticHtmlDir() {
+        return new File(root, "html");
+    }
+
+    /**
+     * Binary snapshot of the report parsed from {@link #getXmlFiles()}.
+     * @return the snapshot file, which may not exist yet.
+     *
+     * @see io.jenkins.plugins.ct.report.ReportSnapshot
+     */
+    public File getSnapshotFile() {
+        return new File(getCoverageReportFilesDir(), "report.snapshot");
+    }
+
+    /**
+     * Checks whether the snapshot exists and was written after all XML reports.
+     * @return true if {@link #getSnapshotFile()} can be used instead of the XML reports.
+     */
+    public boolean isSnapshotUpToDate() {
+        File snapshot = getSnapshotFile();
+        if (!snapshot.isFile()) {
+            return false;
+        }
+        for (File xml : getXmlFiles()) {
+            if (xml.lastModified() > snapshot.lastModified()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores a snapshot that was created elsewhere, e.g. on the agent.
+     * Call this after the reports registered with {@link #addExecFiles(CTTransfer, Iterable)} were
+     * written by {@link CTTransfer#run()}, so that the snapshot is newer than the XML reports.
+     * @param snapshot the snapshot data
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void saveSnapshot(byte[] snapshot) throws IOException {
+        File file = getSnapshotFile();
+        Files.createDirectories(file.getParentFile().toPath());
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.write(tmp.toPath(), snapshot);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
     public void addExecFiles(Iterable<FilePath> execFiles) throws IOException, InterruptedException {
         FilePath root = new FilePath(getCoverageReportFilesDir());
         int i=0;
@@ -85,8 +220,33 @@ public class CTReportDir {
                 separateExecDir = new FilePath(root, "xml"+(i++));
             } while (separateExecDir.exists());
 
-        	FilePath fullExecName = separateExecDir.child("coverage.xml");
-        	file.copyTo(fullExecName);
+        	separateExecDir.mkdirs();
+        	try (OutputStream out = new GZIPOutputStream(separateExecDir.child(COMPRESSED_REPORT).write(), BUFFER_SIZE)) {
+        	    file.copyTo(out);
+        	}
+        }
+    }
+
+    /**
+     * Registers reports to be copied by the given transfer, each into its own directory
+     * like {@link #addExecFiles(Iterable)}. They are compressed as they are received.
+     * @param transfer the transfer of the build
+     * @param execFiles the reports
+     */
+    public void addExecFiles(CTTransfer transfer, Iterable<FilePath> execFiles) {
+        File root = getCoverageReportFilesDir();
+        int i = 0;
+        for (FilePath file : execFiles) {
+            File separateExecDir;
+            do {
+                separateExecDir = new File(root, "xml" + (i++));
+            } while (separateExecDir.exists());
+
+            File report = new File(separateExecDir, COMPRESSED_REPORT);
+            transfer.addFile(file, path -> {
+                Files.createDirectories(report.getParentFile().toPath());
+                return new GZIPOutputStream(new FileOutputStream(report), BUFFER_SIZE);
+            });
         }
     }
 
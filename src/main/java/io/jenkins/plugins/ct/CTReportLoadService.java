@@ -0,0 +1,107 @@
+package io.jenkins.plugins.ct;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.jenkins.plugins.ct.report.CoverageReport;
+
+/**
+ * Loads the reports of builds in the background, one load per build at a time.
+ * <p>
+ * A request for a report that is in {@link CTReportCache} is answered from there.
+ * Otherwise all requests for the same build share one future, so a report is parsed
+ * once however many pages wait for it. Loads run on a fixed number of threads, so
+ * opening many old builds at once queues their reports instead of parsing all of them
+ * at the same time. The number of threads can be set with the system property
+ * {@code io.jenkins.plugins.ct.CTReportLoadService.concurrency}.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CTReportLoadService {
+
+    private static final int CONCURRENCY = Math.max(1, Integer.getInteger(CTReportLoadService.class.getName() + ".concurrency",
+            Math.min(2, Runtime.getRuntime().availableProcessors())));
+
+    private static final CTReportLoadService INSTANCE = new CTReportLoadService(CTReportCache.get(), CONCURRENCY);
+
+    private final CTReportCache cache;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, CompletableFuture<CoverageReport>> loads = new ConcurrentHashMap<>();
+
+    CTReportLoadService(CTReportCache cache, int concurrency) {
+        this.cache = cache;
+        AtomicInteger threads = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "CT report loader " + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * @return the loader of this controller
+     */
+    public static CTReportLoadService get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the report of a build, loading it unless it is cached or already loading.
+     * A loaded report is added to the cache; a load that returns null is not.
+     *
+     * @param key build the report belongs to, see {@link CTReportCache}
+     * @param loader reads the report, only called if no other load of the build is running
+     * @return future of the report, done if it was cached
+     */
+    public CompletableFuture<CoverageReport> load(String key, Callable<CoverageReport> loader) {
+        CoverageReport cached = cache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<CoverageReport> created = new CompletableFuture<>();
+        CompletableFuture<CoverageReport> running = loads.putIfAbsent(key, created);
+        if (running != null) {
+            return running;
+        }
+        executor.execute(() -> {
+            CoverageReport report = null;
+            Throwable failure = null;
+            try {
+                report = loader.call();
+                if (report != null) {
+                    cache.put(key, report);
+                }
+            } catch (Exception | Error e) {
+                failure = e;
+            }
+            // before completing, so whoever sees the result done can start a new load
+            loads.remove(key, created);
+            if (failure != null) {
+                created.completeExceptionally(failure);
+            } else {
+                created.complete(report);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * @param key build the report belongs to
+     * @return whether the report of the build is being loaded or waits for a thread
+     */
+    public boolean isLoading(String key) {
+        return loads.containsKey(key);
+    }
+}
@@ -0,0 +1,83 @@
+package io.jenkins.plugins.ct;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import io.jenkins.plugins.ct.report.CoverageReport;
+
+/**
+ * Parses the XML reports of a build in parallel.
+ * <p>
+ * Every file is parsed into its own {@link CoverageReport} on a shared, bounded
+ * {@link ForkJoinPool}; the parts are then merged in file order, so the result does
+ * not depend on which file finishes first. The size of the pool can be set with the
+ * system property {@code io.jenkins.plugins.ct.CTReportLoader.parallelism}.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CTReportLoader {
+
+    private static final int PARALLELISM = Math.max(1, Integer.getInteger(CTReportLoader.class.getName() + ".parallelism",
+            Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM);
+
+    private CTReportLoader() {
+    }
+
+    /**
+     * Parses and merges the given XML reports.
+     *
+     * @param action the build action the report belongs to
+     * @param xmlFiles XML reports, usually {@link CTReportDir#getXmlFiles()}
+     * @return the merged report
+     * @throws IOException if a report cannot be read or parsed
+     * @throws InterruptedException if interrupted while waiting for the parser threads
+     */
+    public static CoverageReport load(CTBuildAction action, List<File> xmlFiles) throws IOException, InterruptedException {
+        if (xmlFiles.size() == 1) {
+            return parse(action, xmlFiles.get(0));
+        }
+
+        List<Future<CoverageReport>> tasks = new ArrayList<>(xmlFiles.size());
+        for (File xml : xmlFiles) {
+            tasks.add(POOL.submit(() -> parse(action, xml)));
+        }
+        List<CoverageReport> parts = new ArrayList<>(tasks.size());
+        try {
+            for (Future<CoverageReport> task : tasks) {
+                parts.add(task.get());
+            }
+        } catch (ExecutionException e) {
+            // the pool wraps checked exceptions of the task, look for the original one
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            for (Future<CoverageReport> task : tasks) {
+                task.cancel(true);
+            }
+        }
+        return new CoverageReport(action, parts);
+    }
+
+    private static CoverageReport parse(CTBuildAction action, File xml) throws IOException {
+        try (InputStream is = CTReportDir.open(xml)) {
+            return new CoverageReport(action, is);
+        } catch (IOException e) {
+            throw new IOException("Failed to parse " + xml, e);
+        }
+    }
+}
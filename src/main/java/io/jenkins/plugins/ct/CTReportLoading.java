@@ -0,0 +1,35 @@
+package io.jenkins.plugins.ct;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.model.Run;
+
+/**
+ * Stands in for a report while {@link CTReportLoadService} loads it. Every page of the
+ * report shows that it is loading and reloads itself, until the report is there.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CTReportLoading {
+    private final CTBuildAction action;
+
+    public CTReportLoading(CTBuildAction action) {
+        this.action = action;
+    }
+
+    public Run<?, ?> getBuild() {
+        return action.getOwner();
+    }
+
+    public String getDisplayName() {
+        return action.getDisplayName();
+    }
+
+    /**
+     * @return this page, for any page of the report
+     */
+    public CTReportLoading getDynamic(String token, StaplerRequest req, StaplerResponse rsp) {
+        return this;
+    }
+}
@@ -0,0 +1,610 @@
+package io.jenkins.plugins.ct;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.apache.tools.ant.DirectoryScanner;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.remoting.VirtualChannel;
+import io.jenkins.plugins.ct.report.CoverageReportParser;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Job level, content addressed store for the source files archived by {@link CTPublisher}.
+ * <p>
+ * Every distinct file content is stored once, under its SHA-256 hash, in
+ * {@code $JOB/ct-sources/blobs/}. A build only keeps a manifest,
+ * {@link CTReportDir#getSourceManifestFile()}, which maps the relative source paths to hashes.
+ * Each blob counts the builds whose manifest references it and is deleted together
+ * with the last of them.
+ *
+ * @author Jang Hyo Jae
+ */
+public class CTSourceStore {
+    private static final Logger LOGGER = Logger.getLogger(CTSourceStore.class.getName());
+
+    /**
+     * Guards the reference counts of all stores; they only change when a build
+     * is published or deleted.
+     */
+    private static final Object LOCK = new Object();
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final File root;
+
+    public CTSourceStore(File jobRootDir) {
+        root = new File(jobRootDir, "ct-sources");
+    }
+
+    public File getBlobsDir() {
+        return new File(root, "blobs");
+    }
+
+    /**
+     * @param hash SHA-256 of the content, as lower case hex
+     * @return the file holding the content
+     * @throws IOException if the hash is malformed, it may come from an agent
+     */
+    File getBlob(String hash) throws IOException {
+        if (!isHash(hash)) {
+            throw new IOException("Not a content hash: " + hash);
+        }
+        File blobs = getBlobsDir();
+        File blob = new File(new File(blobs, hash.substring(0, 2)), hash);
+        if (!blob.getCanonicalFile().toPath().startsWith(blobs.getCanonicalFile().toPath())) {
+            throw new IOException("Content " + hash + " is outside of " + blobs);
+        }
+        return blob;
+    }
+
+    static boolean isHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    private File getRefCountFile() {
+        return new File(root, "refcounts");
+    }
+
+    /**
+     * Archives the matching files of the given source directories for one build.
+     * The files are hashed where they are, and only contents that are not in the
+     * store yet are transferred.
+     *
+     * @param reportDir the build to archive the sources for
+     * @param dirs source directories, later directories win for equal relative paths
+     * @param inclusionMask comma separated Ant patterns of the files to archive
+     * @param exclusionMask comma separated Ant patterns of the files to skip, may be empty
+     * @return number of files that had to be transferred
+     * @throws IOException if the sources cannot be read or stored
+     * @throws InterruptedException if interrupted while talking to the agent
+     */
+    public int save(CTReportDir reportDir, List<FilePath> dirs, String inclusionMask, String exclusionMask)
+            throws IOException, InterruptedException {
+        if (dirs.isEmpty()) {
+            return 0;
+        }
+        return transfer(dirs.get(0), prepare(reportDir, dirs, inclusionMask, exclusionMask));
+    }
+
+    /**
+     * Archives only the source files that the coverage reports refer to.
+     * The {@code source} attributes of the reports are mapped to files of the
+     * workspace on the agent, and the files missing from the store are transferred
+     * in a single archive stream.
+     * <p>
+     * A name is looked up as is if it is below the workspace, otherwise its trailing
+     * path segments are tried, longest first, below each source directory and then
+     * below the workspace itself. The manifest holds paths relative to the workspace.
+     *
+     * @param reportDir the build to archive the sources for
+     * @param workspace the workspace of the build
+     * @param reports the coverage reports, as paths on the agent
+     * @param dirs source directories to look up relative names in, in order
+     * @return number of files that had to be transferred
+     * @throws IOException if the reports or sources cannot be read, or the sources not be stored
+     * @throws InterruptedException if interrupted while talking to the agent
+     */
+    public int saveReferenced(CTReportDir reportDir, FilePath workspace, List<String> reports, List<FilePath> dirs)
+            throws IOException, InterruptedException {
+        return transfer(workspace, prepareReferenced(reportDir, workspace, reports, dirs));
+    }
+
+    private static int transfer(FilePath agent, Upload upload) throws IOException, InterruptedException {
+        try (Upload u = upload) {
+            CTTransfer transfer = new CTTransfer(agent);
+            u.addTo(transfer);
+            transfer.run();
+            return u.commit();
+        }
+    }
+
+    /**
+     * Hashes the matching files of the given source directories on the agent, the
+     * first step of {@link #save}. The returned upload lets the missing contents be
+     * copied together with other files of the build.
+     *
+     * @param reportDir the build to archive the sources for
+     * @param dirs source directories, later directories win for equal relative paths
+     * @param inclusionMask comma separated Ant patterns of the files to archive
+     * @param exclusionMask comma separated Ant patterns of the files to skip, may be empty
+     * @return the files to transfer
+     * @throws IOException if the sources cannot be read
+     * @throws InterruptedException if interrupted while talking to the agent
+     */
+    public Upload prepare(CTReportDir reportDir, List<FilePath> dirs, String inclusionMask, String exclusionMask)
+            throws IOException, InterruptedException {
+        Map<String, String> added = new TreeMap<>();
+        Map<String, FilePath> origin = new LinkedHashMap<>();
+        for (FilePath dir : dirs) {
+            Map<String, String> hashes = dir.act(new HashSources(inclusionMask, exclusionMask));
+            for (Map.Entry<String, String> e : hashes.entrySet()) {
+                added.put(e.getKey(), e.getValue());
+                origin.put(e.getKey(), dir);
+            }
+        }
+        return new Upload(reportDir, added, origin);
+    }
+
+    /**
+     * Maps the source file names of the reports to files of the workspace and
+     * hashes them on the agent, the first step of {@link #saveReferenced}.
+     *
+     * @param reportDir the build to archive the sources for
+     * @param workspace the workspace of the build
+     * @param reports the coverage reports, as paths on the agent
+     * @param dirs source directories to look up relative names in, in order
+     * @return the files to transfer
+     * @throws IOException if the reports or sources cannot be read
+     * @throws InterruptedException if interrupted while talking to the agent
+     */
+    public Upload prepareReferenced(CTReportDir reportDir, FilePath workspace, List<String> reports, List<FilePath> dirs)
+            throws IOException, InterruptedException {
+        List<String> remoteDirs = new ArrayList<>();
+        for (FilePath dir : dirs) {
+            remoteDirs.add(dir.getRemote());
+        }
+        Map<String, String> added = workspace.act(new HashReferencedSources(reports, remoteDirs));
+        Map<String, FilePath> origin = new LinkedHashMap<>();
+        for (String path : added.keySet()) {
+            origin.put(path, workspace);
+        }
+        return new Upload(reportDir, added, origin);
+    }
+
+    /**
+     * Source files of a build that were hashed on the agent and whose contents
+     * still have to be copied to the store.
+     * <p>
+     * The contents that are already stored are referenced as soon as they are found,
+     * so deleting another build cannot release them before {@link #commit()}; the
+     * references are given back by {@link #commit()} or {@link #close()}.
+     */
+    public final class Upload implements Closeable {
+        private final CTReportDir reportDir;
+        private final Map<String, String> added;
+        private final Map<FilePath, Set<String>> missing = new LinkedHashMap<>();
+        private final Set<String> held = new HashSet<>();
+        private final Set<String> received = new HashSet<>();
+        private File staging;
+
+        Upload(CTReportDir reportDir, Map<String, String> added, Map<String, FilePath> origin) throws IOException {
+            this.reportDir = reportDir;
+            this.added = added;
+            for (String path : added.keySet()) {
+                if (!CTTransfer.isRelativePath(path)) {
+                    throw new IOException("Unexpected source path " + path);
+                }
+            }
+            synchronized (LOCK) {
+                for (Map.Entry<String, String> e : added.entrySet()) {
+                    if (getBlob(e.getValue()).isFile()) {
+                        held.add(e.getValue());
+                    } else {
+                        missing.computeIfAbsent(origin.get(e.getKey()), d -> new HashSet<>()).add(e.getKey());
+                    }
+                }
+                updateRefCounts(Collections.<String>emptySet(), held);
+            }
+        }
+
+        /**
+         * @return number of files of the build
+         */
+        public int getFileCount() {
+            return added.size();
+        }
+
+        /**
+         * Registers the files whose contents are not in the store yet.
+         *
+         * @param transfer the transfer to copy them with
+         * @throws IOException if the staging directory cannot be created
+         */
+        public void addTo(CTTransfer transfer) throws IOException {
+            if (missing.isEmpty()) {
+                return;
+            }
+            Files.createDirectories(root.toPath());
+            staging = Files.createTempDirectory(root.toPath(), "staging").toFile();
+            CTTransfer.Target into = CTTransfer.into(staging);
+            for (Map.Entry<FilePath, Set<String>> e : missing.entrySet()) {
+                Set<String> paths = e.getValue();
+                transfer.addFiles(e.getKey(), paths, path -> {
+                    if (!paths.contains(path)) {
+                        throw new IOException("Unexpected source file " + path);
+                    }
+                    OutputStream os = into.open(path);
+                    received.add(path);
+                    return os;
+                });
+            }
+        }
+
+        /**
+         * Moves the transferred files into the store and writes the manifest of the
+         * build. The hash of each file is computed again, in case it changed after
+         * it was hashed on the agent.
+         *
+         * @return number of files that were transferred
+         * @throws IOException if the store cannot be updated
+         */
+        public int commit() throws IOException {
+            Map<String, String> previous = readManifest(reportDir);
+            Map<String, String> manifest = new TreeMap<>(previous);
+            manifest.putAll(added);
+
+            Map<String, File> staged = new TreeMap<>();
+            for (String path : received) {
+                File file = new File(staging, path);
+                String hash = hash(file);
+                manifest.put(path, hash);
+                staged.put(hash, file);
+            }
+            for (Set<String> paths : missing.values()) {
+                for (String path : paths) {
+                    if (!received.contains(path)) {
+                        // deleted on the agent in the meantime
+                        manifest.remove(path);
+                    }
+                }
+            }
+
+            synchronized (LOCK) {
+                for (Map.Entry<String, File> e : staged.entrySet()) {
+                    File blob = getBlob(e.getKey());
+                    Files.createDirectories(blob.getParentFile().toPath());
+                    try {
+                        Files.move(e.getValue().toPath(), blob.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException x) {
+                        // stored concurrently by another build
+                    }
+                }
+                updateRefCounts(previous.values(), manifest.values());
+                // the manifest references the contents now
+                updateRefCounts(held, Collections.<String>emptySet());
+                held.clear();
+            }
+            writeManifest(reportDir, manifest);
+            return received.size();
+        }
+
+        /**
+         * Deletes the files that were transferred but not committed, and gives back
+         * the references taken for an upload that was not committed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (staging != null) {
+                Util.deleteRecursive(staging);
+                staging = null;
+            }
+            if (!held.isEmpty()) {
+                synchronized (LOCK) {
+                    updateRefCounts(held, Collections.<String>emptySet());
+                    held.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the references of a build, deleting blobs no other build uses.
+     *
+     * @param reportDir the build being deleted
+     * @throws IOException if the store cannot be updated
+     */
+    public void release(CTReportDir reportDir) throws IOException {
+        Map<String, String> manifest = readManifest(reportDir);
+        if (manifest.isEmpty()) {
+            return;
+        }
+        synchronized (LOCK) {
+            updateRefCounts(manifest.values(), new ArrayList<>());
+        }
+        Files.deleteIfExists(reportDir.getSourceManifestFile().toPath());
+    }
+
+    /**
+     * Finds the archived copy of a source file as named in the coverage report.
+     * The report usually holds absolute paths of the agent, so the longest relative
+     * path of the manifest that the name ends with is used.
+     *
+     * @param reportDir the build
+     * @param source the {@code source} attribute of a function
+     * @return the stored file, or null if the build did not archive it
+     * @throws IOException if the manifest cannot be read
+     */
+    public File resolve(CTReportDir reportDir, String source) throws IOException {
+        if (source == null) {
+            return null;
+        }
+        String path = source.replace('\\', '/');
+        Map<String, String> manifest = readManifest(reportDir);
+        String match = null;
+        for (String rel : manifest.keySet()) {
+            if ((path.equals(rel) || path.endsWith("/" + rel)) && (match == null || rel.length() > match.length())) {
+                match = rel;
+            }
+        }
+        if (match == null) {
+            return null;
+        }
+        File blob = getBlob(manifest.get(match));
+        return blob.isFile() ? blob : null;
+    }
+
+    /**
+     * Reads the manifest of a build.
+     *
+     * @param reportDir the build
+     * @return relative source path to content hash, empty if nothing was archived
+     * @throws IOException if the manifest cannot be read
+     */
+    public static Map<String, String> readManifest(CTReportDir reportDir) throws IOException {
+        Map<String, String> manifest = new TreeMap<>();
+        File file = reportDir.getSourceManifestFile();
+        if (!file.isFile()) {
+            return manifest;
+        }
+        try (BufferedReader r = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                int sep = line.indexOf(' ');
+                if (sep > 0 && isHash(line.substring(0, sep))) {
+                    manifest.put(line.substring(sep + 1), line.substring(0, sep));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    private static void writeManifest(CTReportDir reportDir, Map<String, String> manifest) throws IOException {
+        File file = reportDir.getSourceManifestFile();
+        Files.createDirectories(file.getParentFile().toPath());
+        try (Writer w = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> e : manifest.entrySet()) {
+                w.write(e.getValue() + ' ' + e.getKey() + '\n');
+            }
+        }
+    }
+
+    /**
+     * Moves the references of one build from the old to the new set of hashes.
+     * Must be called with {@link #LOCK} held.
+     */
+    private void updateRefCounts(Iterable<String> before, Iterable<String> after) throws IOException {
+        Set<String> removed = new HashSet<>();
+        before.forEach(removed::add);
+        Set<String> added = new HashSet<>();
+        after.forEach(added::add);
+        Set<String> unchanged = new HashSet<>(removed);
+        unchanged.retainAll(added);
+        removed.removeAll(unchanged);
+        added.removeAll(unchanged);
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> counts = readRefCounts();
+        for (String hash : added) {
+            counts.merge(hash, 1, Integer::sum);
+        }
+        for (String hash : removed) {
+            int count = counts.getOrDefault(hash, 0) - 1;
+            if (count > 0) {
+                counts.put(hash, count);
+            } else {
+                counts.remove(hash);
+                Files.deleteIfExists(getBlob(hash).toPath());
+            }
+        }
+
+        Files.createDirectories(root.toPath());
+        File tmp = new File(root, "refcounts.tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Integer> e : counts.entrySet()) {
+                w.write(e.getKey() + ' ' + e.getValue() + '\n');
+            }
+        }
+        Files.move(tmp.toPath(), getRefCountFile().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return content hash to number of builds referencing it
+     */
+    Map<String, Integer> readRefCounts() throws IOException {
+        Map<String, Integer> counts = new TreeMap<>();
+        File file = getRefCountFile();
+        if (!file.isFile()) {
+            return counts;
+        }
+        try (BufferedReader r = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                int sep = line.indexOf(' ');
+                if (sep > 0 && isHash(line.substring(0, sep))) {
+                    counts.put(line.substring(0, sep), Integer.parseInt(line.substring(sep + 1)));
+                }
+            }
+        }
+        return counts;
+    }
+
+    static String hash(File file) throws IOException {
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = is.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+            return Util.toHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Hashes the matching files of a source directory on the agent.
+     */
+    private static final class HashSources extends MasterToSlaveFileCallable<Map<String, String>> {
+        private static final long serialVersionUID = 1L;
+        private final String inclusionMask;
+        private final String exclusionMask;
+
+        HashSources(String inclusionMask, String exclusionMask) {
+            this.inclusionMask = inclusionMask;
+            this.exclusionMask = exclusionMask;
+        }
+
+        public Map<String, String> invoke(File f, VirtualChannel channel) throws IOException {
+            Map<String, String> hashes = new TreeMap<>();
+            if (!f.isDirectory()) {
+                return hashes;
+            }
+            DirectoryScanner ds = new DirectoryScanner();
+            ds.setBasedir(f);
+            ds.setIncludes(inclusionMask.split(","));
+            if (exclusionMask != null && !exclusionMask.trim().isEmpty()) {
+                ds.setExcludes(exclusionMask.split(","));
+            }
+            ds.addDefaultExcludes();
+            ds.scan();
+            for (String path : ds.getIncludedFiles()) {
+                hashes.put(path.replace(File.separatorChar, '/'), hash(new File(f, path)));
+            }
+            return hashes;
+        }
+    }
+
+    /**
+     * Maps the source file names of coverage reports to files of the workspace and
+     * hashes them on the agent.
+     */
+    private static final class HashReferencedSources extends MasterToSlaveFileCallable<Map<String, String>> {
+        private static final long serialVersionUID = 1L;
+        private final List<String> reports;
+        private final List<String> dirs;
+
+        HashReferencedSources(List<String> reports, List<String> dirs) {
+            this.reports = reports;
+            this.dirs = dirs;
+        }
+
+        public Map<String, String> invoke(File workspace, VirtualChannel channel) throws IOException {
+            CoverageReportParser parser = new CoverageReportParser(true);
+            Set<String> sources = new HashSet<>();
+            for (String report : reports) {
+                try (InputStream is = new BufferedInputStream(Files.newInputStream(new File(report).toPath()))) {
+                    parser.readSources(is, sources);
+                } catch (IOException e) {
+                    throw new IOException("Failed to parse " + report, e);
+                }
+            }
+
+            Path base = workspace.getCanonicalFile().toPath();
+            Map<String, String> hashes = new TreeMap<>();
+            for (String source : sources) {
+                File file = find(base, source);
+                if (file != null) {
+                    String path = base.relativize(file.getCanonicalFile().toPath()).toString();
+                    hashes.put(path.replace(File.separatorChar, '/'), hash(file));
+                }
+            }
+            return hashes;
+        }
+
+        private File find(Path base, String source) throws IOException {
+            File file = new File(source);
+            if (!file.isAbsolute()) {
+                file = new File(base.toFile(), source);
+            }
+            if (file.isFile() && file.getCanonicalFile().toPath().startsWith(base)) {
+                return file;
+            }
+
+            String[] segments = source.replace('\\', '/').split("/+");
+            List<File> roots = new ArrayList<>();
+            for (String dir : dirs) {
+                roots.add(new File(dir));
+            }
+            roots.add(base.toFile());
+            for (File root : roots) {
+                for (int i = 0; i < segments.length; i++) {
+                    File candidate = new File(root, String.join("/", Arrays.copyOfRange(segments, i, segments.length)));
+                    if (candidate.isFile() && candidate.getCanonicalFile().toPath().startsWith(base)) {
+                        return candidate;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Releases the archived sources of deleted builds.
+     */
+    @Extension
+    public static final class BuildDeletion extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            try {
+                new CTSourceStore(run.getParent().getRootDir()).release(new CTReportDir(run.getRootDir()));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to release the archived sources of " + run, e);
+            }
+        }
+    }
+}
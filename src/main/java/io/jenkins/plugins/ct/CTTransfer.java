@@ -0,0 +1,321 @@
+package io.jenkins.plugins.ct;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.tools.ant.DirectoryScanner;
+
+import hudson.FilePath;
+import hudson.remoting.Pipe;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Copies the files a build publishes from the agent in a single stream.
+ * <p>
+ * Reports and source files are first registered, each group with the {@link Target}
+ * that receives its files on the controller. {@link #run()} then makes the agent
+ * pack all of them into one gzip compressed tar, which is unpacked while it is
+ * being received, so the transfer costs one round trip however many files and
+ * directories are involved.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CTTransfer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern DRIVE = Pattern.compile("[A-Za-z]:");
+
+    /**
+     * Receives the files of one group on the controller.
+     */
+    public interface Target {
+        /**
+         * @param path the path of the file, relative to the directory it was registered with
+         * @return the stream to write the content of the file to, closed by the caller
+         * @throws IOException if the file cannot be created
+         */
+        OutputStream open(String path) throws IOException;
+    }
+
+    private final FilePath agent;
+    private final List<Group> groups = new ArrayList<>();
+    private final List<Target> targets = new ArrayList<>();
+
+    private int fileCount;
+    private long byteCount;
+    private long millis;
+
+    /**
+     * @param agent any path on the agent to copy from, usually the workspace
+     */
+    public CTTransfer(FilePath agent) {
+        this.agent = agent;
+    }
+
+    /**
+     * Registers a single file.
+     *
+     * @param file the file to copy
+     * @param target receives the file under its name
+     */
+    public void addFile(FilePath file, Target target) {
+        addFiles(file.getParent(), Collections.singletonList(file.getName()), target);
+    }
+
+    /**
+     * Registers files of a directory. Files that do not exist are skipped.
+     *
+     * @param dir the directory
+     * @param paths the files, relative to {@code dir} with '/' as separator
+     * @param target receives the files under their relative paths
+     */
+    public void addFiles(FilePath dir, Collection<String> paths, Target target) {
+        groups.add(new Group(dir.getRemote(), paths.toArray(new String[0]), null, null));
+        targets.add(target);
+    }
+
+    /**
+     * Registers the files of a directory that match Ant patterns.
+     *
+     * @param dir the directory
+     * @param inclusionMask comma separated patterns of the files to copy
+     * @param exclusionMask comma separated patterns of the files to skip, may be empty
+     * @param target receives the files under their relative paths
+     */
+    public void addMatching(FilePath dir, String inclusionMask, String exclusionMask, Target target) {
+        groups.add(new Group(dir.getRemote(), null, inclusionMask, exclusionMask));
+        targets.add(target);
+    }
+
+    /**
+     * Creates a target that writes the files below a directory of the controller.
+     *
+     * @param dir the directory
+     * @return the target
+     */
+    public static Target into(File dir) {
+        return path -> {
+            File file = new File(dir, path);
+            Files.createDirectories(file.getParentFile().toPath());
+            return new FileOutputStream(file);
+        };
+    }
+
+    /**
+     * Copies all registered files.
+     *
+     * @throws IOException if the files cannot be read, transferred or written
+     * @throws InterruptedException if interrupted while waiting for the agent
+     */
+    public void run() throws IOException, InterruptedException {
+        if (groups.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        InputStream in;
+        OutputStream out;
+        if (agent.isRemote()) {
+            Pipe pipe = Pipe.createRemoteToLocal();
+            in = pipe.getIn();
+            out = pipe.getOut();
+        } else {
+            PipedInputStream local = new PipedInputStream(BUFFER_SIZE);
+            in = local;
+            out = new PipedOutputStream(local);
+        }
+
+        Future<Void> packer = agent.actAsync(new Pack(groups, out));
+        try {
+            unpack(in);
+            packer.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException("Failed to transfer the files from " + agent, cause);
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            packer.cancel(true);
+            in.close();
+        }
+        millis = System.currentTimeMillis() - start;
+    }
+
+    void unpack(InputStream in) throws IOException {
+        TarArchiveInputStream tar = new TarArchiveInputStream(new GZIPInputStream(in, BUFFER_SIZE));
+        TarArchiveEntry entry;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while ((entry = tar.getNextEntry()) != null) {
+            if (!entry.isFile()) {
+                continue;
+            }
+            String name = entry.getName();
+            int sep = name.indexOf('/');
+            int group;
+            try {
+                group = Integer.parseInt(name.substring(0, Math.max(sep, 0)));
+            } catch (NumberFormatException e) {
+                throw new IOException("Unexpected entry " + name);
+            }
+            String path = name.substring(sep + 1);
+            if (group < 0 || group >= targets.size() || !isRelativePath(path)) {
+                throw new IOException("Unexpected entry " + name);
+            }
+            try (OutputStream os = targets.get(group).open(path)) {
+                int n;
+                while ((n = tar.read(buffer)) > 0) {
+                    os.write(buffer, 0, n);
+                    byteCount += n;
+                }
+            }
+            fileCount++;
+        }
+        // let the agent write the end of the stream
+        while (in.read(buffer) >= 0) {
+            // skip
+        }
+    }
+
+    /**
+     * Checks a path received from an agent. It must be relative with '/' as separator and
+     * must not leave the directory it is resolved against, whatever the controller's
+     * operating system.
+     *
+     * @param path the path
+     * @return whether the path is safe to resolve against a directory of the controller
+     */
+    static boolean isRelativePath(String path) {
+        if (path.isEmpty() || path.startsWith("/") || path.indexOf('\\') >= 0 || DRIVE.matcher(path).lookingAt()) {
+            return false;
+        }
+        for (String segment : path.split("/")) {
+            if (segment.equals("..")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of files copied by {@link #run()}
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return uncompressed size of the files copied by {@link #run()}
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return time taken by {@link #run()}, in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Files of one directory, given either by name or by Ant patterns.
+     */
+    private static final class Group implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String dir;
+        private final String[] paths;
+        private final String inclusionMask;
+        private final String exclusionMask;
+
+        Group(String dir, String[] paths, String inclusionMask, String exclusionMask) {
+            this.dir = dir;
+            this.paths = paths;
+            this.inclusionMask = inclusionMask;
+            this.exclusionMask = exclusionMask;
+        }
+
+        String[] list() {
+            if (paths != null) {
+                return paths;
+            }
+            File base = new File(dir);
+            if (!base.isDirectory()) {
+                return new String[0];
+            }
+            DirectoryScanner ds = new DirectoryScanner();
+            ds.setBasedir(base);
+            ds.setIncludes(inclusionMask.split(","));
+            if (exclusionMask != null && !exclusionMask.trim().isEmpty()) {
+                ds.setExcludes(exclusionMask.split(","));
+            }
+            ds.addDefaultExcludes();
+            ds.scan();
+            String[] files = ds.getIncludedFiles();
+            for (int i = 0; i < files.length; i++) {
+                files[i] = files[i].replace(File.separatorChar, '/');
+            }
+            return files;
+        }
+    }
+
+    /**
+     * Writes the registered files into the stream on the agent.
+     */
+    private static final class Pack extends MasterToSlaveFileCallable<Void> {
+        private static final long serialVersionUID = 1L;
+        private final List<Group> groups;
+        private final OutputStream out;
+
+        Pack(List<Group> groups, OutputStream out) {
+            this.groups = new ArrayList<>(groups);
+            this.out = out;
+        }
+
+        public Void invoke(File f, VirtualChannel channel) throws IOException {
+            try (TarArchiveOutputStream tar = new TarArchiveOutputStream(
+                    new GZIPOutputStream(new BufferedOutputStream(out, BUFFER_SIZE), BUFFER_SIZE))) {
+                tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+                tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+                for (int g = 0; g < groups.size(); g++) {
+                    Group group = groups.get(g);
+                    for (String path : group.list()) {
+                        File file = new File(group.dir, path);
+                        if (!file.isFile()) {
+                            continue;
+                        }
+                        TarArchiveEntry entry = new TarArchiveEntry(g + "/" + path);
+                        entry.setSize(file.length());
+                        entry.setModTime(file.lastModified());
+                        tar.putArchiveEntry(entry);
+                        Files.copy(file.toPath(), tar);
+                        tar.closeArchiveEntry();
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package io.jenkins.plugins.ct;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import io.jenkins.plugins.ct.model.CoverageElement;
+import io.jenkins.plugins.ct.model.CoverageObject;
+
+/**
+ * The coverage trend of a job in one file next to its builds, so the trend graph and
+ * the portlets do not load every build.
+ * <p>
+ * The file starts with a magic number and holds one fixed size record per build:
+ * build number, timestamp and the missed and covered counts of the types in
+ * {@link #TYPES}. Records are appended when a build completes, see {@link CTTrendListener};
+ * a later record of the same build replaces an earlier one. Deleting a build rewrites
+ * the file without it. A job without the file, e.g. one recorded by an older version,
+ * gets it from its builds the first time its trend is read.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CTTrendIndex {
+    static final String FILE = "ct-trend.bin";
+    private static final int MAGIC = 0x43545431;
+    static final CoverageElement.Type[] TYPES = {
+            CoverageElement.Type.STATEMENT, CoverageElement.Type.BRANCH,
+            CoverageElement.Type.MCDC, CoverageElement.Type.CALL
+    };
+    private static final int RECORD = 4 + 8 + 8 * TYPES.length;
+    private static final int UNKNOWN = -1;
+
+    /**
+     * The coverage of one build in the trend. Its previous result is the point of the
+     * build before it.
+     */
+    public static final class Point extends CoverageObject<Point> {
+        private final int number;
+        private final long timestamp;
+        private Point previous;
+
+        Point(int number, long timestamp) {
+            this.number = number;
+            this.timestamp = timestamp;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * @return start of the build in milliseconds
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return null, points are not backed by a loaded build
+         */
+        @Override
+        public Run<?, ?> getBuild() {
+            return null;
+        }
+
+        @Override
+        public Point getPreviousResult() {
+            return previous;
+        }
+
+        @Override
+        protected Calendar getGraphTimestamp() {
+            Calendar t = Calendar.getInstance();
+            t.setTimeInMillis(timestamp);
+            return t;
+        }
+
+        @Override
+        protected Comparable<?> getGraphLabel() {
+            return new Label(number);
+        }
+    }
+
+    /**
+     * Build number on the axis of the graph.
+     */
+    private static final class Label implements Comparable<Label> {
+        private final int number;
+
+        Label(int number) {
+            this.number = number;
+        }
+
+        @Override
+        public int compareTo(Label o) {
+            return Integer.compare(number, o.number);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Label && ((Label) o).number == number;
+        }
+
+        @Override
+        public int hashCode() {
+            return number;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + number;
+        }
+    }
+
+    private final Job<?, ?> job;
+    private final File file;
+
+    CTTrendIndex(Job<?, ?> job, File file) {
+        this.job = job;
+        this.file = file;
+    }
+
+    /**
+     * @param job the job
+     * @return the trend of the job
+     */
+    public static CTTrendIndex of(Job<?, ?> job) {
+        return new CTTrendIndex(job, new File(job.getRootDir(), FILE));
+    }
+
+    /**
+     * Whether a build counts for the trend, the same builds {@link CTBuildAction#getPreviousResult()} finds.
+     */
+    static boolean isRecorded(Run<?, ?> run) {
+        return !run.isBuilding() && run.getResult() != Result.FAILURE && run.getResult() != Result.ABORTED
+                && run.getAction(CTBuildAction.class) != null;
+    }
+
+    /**
+     * Adds the coverage of a build. Creates the file from all builds of the job if it does not exist.
+     *
+     * @param run the build
+     * @param coverage its coverage, usually the {@link CTBuildAction}
+     * @throws IOException if the file cannot be written
+     */
+    public void append(Run<?, ?> run, CoverageObject<?> coverage) throws IOException {
+        synchronized (CTTrendIndex.class) {
+            if (!file.isFile()) {
+                rebuild();
+                if (read().containsKey(run.getNumber())) {
+                    return;
+                }
+            }
+            append(run.getNumber(), run.getTimeInMillis(), coverage);
+        }
+    }
+
+    void append(int number, long timestamp, CoverageObject<?> coverage) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD);
+        put(record, number, timestamp, coverage);
+        synchronized (CTTrendIndex.class) {
+            Files.write(file.toPath(), record.array(), StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Drops a deleted build.
+     *
+     * @param number number of the build
+     * @throws IOException if the file cannot be written
+     */
+    public void remove(int number) throws IOException {
+        synchronized (CTTrendIndex.class) {
+            if (!file.isFile()) {
+                return;
+            }
+            TreeMap<Integer, Point> points = read();
+            if (points.remove(number) != null) {
+                write(points.values());
+            }
+        }
+    }
+
+    /**
+     * Writes the file from the builds of the job, loading each of them once.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void rebuild() throws IOException {
+        List<Point> points = new ArrayList<>();
+        for (Run<?, ?> b = job.getLastBuild(); b != null; b = b.getPreviousBuild()) {
+            if (isRecorded(b)) {
+                points.add(point(b.getNumber(), b.getTimeInMillis(), b.getAction(CTBuildAction.class)));
+            }
+        }
+        Collections.reverse(points);
+        synchronized (CTTrendIndex.class) {
+            write(points);
+        }
+    }
+
+    void write(Iterable<Point> points) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+            os.write(ByteBuffer.allocate(4).putInt(MAGIC).array());
+            ByteBuffer record = ByteBuffer.allocate(RECORD);
+            for (Point p : points) {
+                record.clear();
+                put(record, p.number, p.timestamp, p);
+                os.write(record.array());
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void put(ByteBuffer record, int number, long timestamp, CoverageObject<?> coverage) {
+        record.putInt(number).putLong(timestamp);
+        for (CoverageElement.Type type : TYPES) {
+            if (coverage.hasCoverage(type)) {
+                record.putInt(coverage.getMissed(type)).putInt(coverage.getCovered(type));
+            } else {
+                record.putInt(UNKNOWN).putInt(UNKNOWN);
+            }
+        }
+    }
+
+    /**
+     * @param run a build
+     * @param coverage the coverage of the build
+     * @return the point of the build alone, without earlier builds
+     */
+    public static Point point(Run<?, ?> run, CoverageObject<?> coverage) {
+        return point(run.getNumber(), run.getTimeInMillis(), coverage);
+    }
+
+    static Point point(int number, long timestamp, CoverageObject<?> coverage) {
+        Point p = new Point(number, timestamp);
+        for (CoverageElement.Type type : TYPES) {
+            if (coverage.hasCoverage(type)) {
+                p.setCounter(type, coverage.getMissed(type), coverage.getCovered(type));
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Links each point to the one before it.
+     *
+     * @param points points in order of their build numbers
+     * @return the last point, or null if there are none
+     */
+    static @CheckForNull Point chain(List<Point> points) {
+        Point previous = null;
+        for (Point p : points) {
+            p.previous = previous;
+            previous = p;
+        }
+        return previous;
+    }
+
+    /**
+     * @return the points by build number, each linked to the one before it
+     */
+    private TreeMap<Integer, Point> read() throws IOException {
+        TreeMap<Integer, Point> points = new TreeMap<>();
+        if (!file.isFile()) {
+            return points;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (data.remaining() < 4 || data.getInt() != MAGIC) {
+            throw new IOException("Not a coverage trend: " + file);
+        }
+        // a record that is still being appended is skipped
+        while (data.remaining() >= RECORD) {
+            Point p = new Point(data.getInt(), data.getLong());
+            for (CoverageElement.Type type : TYPES) {
+                int missed = data.getInt();
+                int covered = data.getInt();
+                if (missed != UNKNOWN) {
+                    p.setCounter(type, missed, covered);
+                }
+            }
+            points.put(p.number, p);
+        }
+        chain(new ArrayList<>(points.values()));
+        return points;
+    }
+
+    /**
+     * Reads the trend, creating the file from the builds of the job if it is missing or broken.
+     *
+     * @return the points in order of their build numbers
+     * @throws IOException if the file cannot be read or written
+     */
+    public List<Point> getPoints() throws IOException {
+        return new ArrayList<>(load().values());
+    }
+
+    private TreeMap<Integer, Point> load() throws IOException {
+        if (file.isFile()) {
+            try {
+                return read();
+            } catch (IOException e) {
+                // written by something else, start over
+            }
+        }
+        rebuild();
+        return read();
+    }
+
+    /**
+     * @return the point of the last build, or null if no build recorded coverage
+     * @throws IOException if the file cannot be read or written
+     */
+    public @CheckForNull Point getLast() throws IOException {
+        TreeMap<Integer, Point> points = load();
+        return points.isEmpty() ? null : points.lastEntry().getValue();
+    }
+
+    /**
+     * The point of a build. A build that is not in the trend yet, e.g. because it is
+     * still running, gets a point from the given coverage, after the points of the
+     * builds before it.
+     *
+     * @param run the build
+     * @param coverage its coverage
+     * @return the point of the build
+     * @throws IOException if the file cannot be read or written
+     */
+    public Point getPoint(Run<?, ?> run, CoverageObject<?> coverage) throws IOException {
+        return getPoint(run.getNumber(), run.getTimeInMillis(), coverage);
+    }
+
+    Point getPoint(int number, long timestamp, CoverageObject<?> coverage) throws IOException {
+        TreeMap<Integer, Point> points = load();
+        Point p = points.get(number);
+        if (p == null) {
+            p = point(number, timestamp, coverage);
+            Map.Entry<Integer, Point> before = points.lowerEntry(number);
+            p.previous = before != null ? before.getValue() : null;
+        }
+        return p;
+    }
+}
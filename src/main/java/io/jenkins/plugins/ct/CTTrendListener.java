@@ -0,0 +1,59 @@
+package io.jenkins.plugins.ct;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Keeps the {@link CTTrendIndex} of a job up to date as its builds complete and are deleted,
+ * and drops deleted builds from its {@link CTMethodHistory}, the {@link CTReportCache} and
+ * the {@link CTCoverageChanges}. Either way the graphs of the job in the {@link CTGraphCache}
+ * are out of date.
+ * Builds are added when they complete rather than when the report is published,
+ * since only then their result, which decides whether they count, is final.
+ *
+ * @author Jang Hyo Jae
+ */
+@Extension
+public class CTTrendListener extends RunListener<Run<?, ?>> {
+    private static final Logger LOGGER = Logger.getLogger(CTTrendListener.class.getName());
+
+    @Override
+    public void onCompleted(Run<?, ?> run, TaskListener listener) {
+        if (!CTTrendIndex.isRecorded(run)) {
+            return;
+        }
+        try {
+            CTTrendIndex.of(run.getParent()).append(run, run.getAction(CTBuildAction.class));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to record the coverage trend of " + run, e);
+        }
+        CTGraphCache.get().invalidate(run.getParent().getRootDir());
+    }
+
+    @Override
+    public void onDeleted(Run<?, ?> run) {
+        if (run.getAction(CTBuildAction.class) == null) {
+            return;
+        }
+        try {
+            CTTrendIndex.of(run.getParent()).remove(run.getNumber());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to remove " + run + " from the coverage trend", e);
+        }
+        try {
+            CTMethodHistory.of(run.getParent()).remove(run.getNumber());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to remove " + run + " from the function history", e);
+        }
+        CTGraphCache.get().invalidate(run.getParent().getRootDir());
+        // let go of the report, and with it the build and its mapped snapshot
+        CTReportCache.get().invalidate(CTBuildAction.getCacheKey(run));
+        CTCoverageChanges.invalidate(CTBuildAction.getCacheKey(run));
+    }
+}
@@ -7,6 +7,10 @@ import org.kohsuke.stapler.export.ExportedBean;
 
 /**
  * Represents {@code x/y} where x={@link #missed} and y={@link #covered}.
+ * <p>
+ * A coverage either holds its own values, or is a view of one counter slot of a
+ * {@link CoverageObject}, see {@link #pack(int, int)}. Views read and write the slot,
+ * so report nodes only need to keep their counters.
  * 
  * @author Kohsuke Kawaguchi
  * @author Jonathan Fuerth
@@ -19,6 +23,14 @@ final public class Coverage implements Serializable {
     private CoverageElement.Type type;
     boolean initialized = false;
 
+    /**
+     * Flag of an initialized counter in a packed value, the sign bit.
+     */
+    static final long INITIALIZED = Long.MIN_VALUE;
+
+    private transient long[] counters;
+    private transient int slot;
+
     public Coverage(int missed, int covered) {
         this.missed = missed;
         this.covered = covered;
@@ -28,19 +40,55 @@ final public class Coverage implements Serializable {
     public Coverage() {
     }
 
+    /**
+     * Creates a view of a counter slot.
+     *
+     * @param counters packed counters, one per {@link CoverageElement.Type}
+     * @param type the type whose slot this coverage reads and writes
+     */
+    Coverage(long[] counters, CoverageElement.Type type) {
+        this.counters = counters;
+        this.slot = type.ordinal();
+        this.type = type;
+    }
+
+    /**
+     * Packs a counter into one long: the missed count in the upper half, the covered
+     * count in the lower half and {@link #INITIALIZED} in the sign bit.
+     *
+     * @param missed missed count, not negative
+     * @param covered covered count, not negative
+     * @return the packed counter
+     */
+    static long pack(int missed, int covered) {
+        return INITIALIZED | ((long) missed << 32) | (covered & 0xFFFFFFFFL);
+    }
+
+    static int missed(long counter) {
+        return (int) (counter >>> 32) & Integer.MAX_VALUE;
+    }
+
+    static int covered(long counter) {
+        return (int) counter;
+    }
+
+    static boolean isInitialized(long counter) {
+        return (counter & INITIALIZED) != 0;
+    }
+
     @Exported
     public int getMissed() {
-        return missed;
+        return counters == null ? missed : missed(counters[slot]);
     }
 
     @Exported
     public int getCovered() {
-        return covered;
+        return counters == null ? covered : covered(counters[slot]);
     }
     
     @Exported
     public int getTotal() {
-        return missed + covered;
+        return getMissed() + getCovered();
     }
 
     /**
@@ -48,7 +96,7 @@ final public class Coverage implements Serializable {
      */
     @Override
     public String toString() {
-        return missed + "/" + covered;
+        return getMissed() + "/" + getCovered();
     }
 
     /**
@@ -69,6 +117,16 @@ final public class Coverage implements Serializable {
      */
     @Exported
     public float getPercentageFloat() {
+        return getPercentageFloat(getMissed(), getCovered());
+    }
+
+    /**
+     * Computes the percentage of a counter without creating a {@link Coverage}.
+     * @param missed missed count
+     * @param covered covered count
+     * @return the coverage percentage as a float between 0f and 100f, see {@link #getPercentageFloat()}
+     */
+    public static float getPercentageFloat(int missed, int covered) {
         float numerator = covered;
         float denominator = missed + covered;
 
@@ -95,16 +153,16 @@ final public class Coverage implements Serializable {
 
         Coverage ratio = (Coverage) o;
 
-        return ratio.covered == covered
-            && ratio.missed == missed;
+        return ratio.getCovered() == getCovered()
+            && ratio.getMissed() == getMissed();
 
     }
 
     @Override
     public int hashCode() {
         int result;
-        result = missed;
-        result = 31 * result + covered;
+        result = getMissed();
+        result = 31 * result + getCovered();
         return result;
     }
 
@@ -116,18 +174,39 @@ final public class Coverage implements Serializable {
      * @param covered The amount to add to the covered.
      */
     public void accumulate(int missed, int covered) {
+      if (counters != null) {
+        counters[slot] = pack(missed, covered);
+        return;
+      }
       this.missed = missed;
       this.covered = covered;
       initialized = true;
     }
     public void accumulatePP(int missed, int covered) {
+        if (counters != null) {
+          accumulate(getMissed() + missed, getCovered() + covered);
+          return;
+        }
         this.missed += missed;
         this.covered += covered;
         initialized = true;
       }
 
     public boolean isInitialized() {
-        return initialized;
+        return counters == null ? initialized : isInitialized(counters[slot]);
+    }
+
+    /**
+     * Views are serialized with their current values.
+     */
+    private Object writeReplace() {
+        if (counters == null) {
+            return this;
+        }
+        Coverage copy = new Coverage(getMissed(), getCovered());
+        copy.initialized = isInitialized();
+        copy.type = type;
+        return copy;
     }
 
     private static final long serialVersionUID = 1L;
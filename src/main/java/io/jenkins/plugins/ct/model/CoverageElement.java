@@ -22,25 +22,25 @@ public final class CoverageElement {
       BRANCH {
         @Override
         public Coverage getAssociatedRatio(AbstractReport<?, ?> from) {
-          return from.branch;
+          return from.getCoverage(BRANCH);
         }
       },
       STATEMENT {
           @Override
           public Coverage getAssociatedRatio(AbstractReport<?, ?> from) {
-            return from.statement;
+            return from.getCoverage(STATEMENT);
           }
         },
       CALL {
             @Override
             public Coverage getAssociatedRatio(AbstractReport<?, ?> from) {
-              return from.call;
+              return from.getCoverage(CALL);
             }
           },
       MCDC {
               @Override
               public Coverage getAssociatedRatio(AbstractReport<?, ?> from) {
-                return from.mcdc;
+                return from.getCoverage(MCDC);
               }
            }
       ;
@@ -86,6 +86,6 @@ public final class CoverageElement {
     }
 
     public void addTo(AbstractReport<?,?> report) throws IOException {
-        type.getAssociatedRatio(report).accumulate(missed, covered);
+        report.setCounter(type, missed, covered);
     }
 }
@@ -31,7 +31,7 @@ public class CoverageGraphLayout
 
 					@Override
 					public Coverage getCoverage(CoverageObject<?> a) {
-						return a.branch;
+						return a.getBranchCoverage();
 					}
 
 				},
@@ -44,7 +44,7 @@ public class CoverageGraphLayout
 
 					@Override
 					public Coverage getCoverage(CoverageObject<?> a) {
-						return a.mcdc;
+						return a.getMCDCCoverage();
 					}
 
 				},
@@ -57,7 +57,7 @@ public class CoverageGraphLayout
 
 					@Override
 					public Coverage getCoverage(CoverageObject<?> a) {
-						return a.call;
+						return a.getCallCoverage();
 					}
 
 				},
@@ -71,7 +71,7 @@ public class CoverageGraphLayout
 
 					@Override
 					public Coverage getCoverage(CoverageObject<?> a) {
-						return a.statement;
+						return a.getStatementCoverage();
 					}
 
 				};
@@ -169,6 +169,12 @@ public class CoverageGraphLayout
 		{
 			return crop;
 		}
+
+		@Override
+		public String toString()
+		{
+			return label + " " + crop + " " + skipZero;
+		}
 	}
 
 	static class Plot
@@ -206,6 +212,7 @@ public class CoverageGraphLayout
 	}
 
 	private float baseStroke = 4f;
+	private int maxPoints = 0;
 	private Stack<Axis> axes = new Stack<>();
 	private Stack<Plot> plots = new Stack<>();
 
@@ -215,6 +222,22 @@ public class CoverageGraphLayout
 		return this;
 	}
 
+	/**
+	 * Limits the number of builds shown, see {@link TrendSeries}.
+	 * @param maxPoints the largest number of builds, 0 or less for all of them
+	 * @return this layout
+	 */
+	public CoverageGraphLayout maxPoints(int maxPoints)
+	{
+		this.maxPoints = maxPoints;
+		return this;
+	}
+
+	public int getMaxPoints()
+	{
+		return maxPoints;
+	}
+
 	public CoverageGraphLayout axis()
 	{
 		axes.push(new Axis());
@@ -295,6 +318,15 @@ public class CoverageGraphLayout
 		return Collections.unmodifiableList(plots);
 	}
 
+	/**
+	 * @return everything the graph depends on, e.g. to identify a rendered image
+	 */
+	@Override
+	public String toString()
+	{
+		return baseStroke + " " + maxPoints + " " + plots;
+	}
+
 	public void apply(JFreeChart chart, boolean onlyOneBuild)
 	{
 		final CategoryPlot plot = chart.getCategoryPlot();
@@ -2,9 +2,11 @@ package io.jenkins.plugins.ct.model;
 
 import hudson.Util;
 import hudson.model.Api;
+import hudson.model.Job;
 import hudson.model.Run;
 import hudson.util.ChartUtil;
 import hudson.util.ChartUtil.NumberOnlyBuildLabel;
+import io.jenkins.plugins.ct.CTGraphCache;
 import io.jenkins.plugins.ct.CTHealthReportThresholds;
 import io.jenkins.plugins.ct.Rule;
 import io.jenkins.plugins.ct.model.CoverageGraphLayout.Axis;
@@ -16,20 +18,26 @@ import hudson.util.DataSetBuilder;
 import hudson.util.Graph;
 import hudson.util.ShiftedCategoryAxis;
 import java.awt.Color;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
 import org.jacoco.core.analysis.ICoverageNode;
 import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.CategoryAxis;
 import org.jfree.chart.axis.CategoryLabelPositions;
@@ -55,11 +63,27 @@ import org.kohsuke.stapler.export.ExportedBean;
 public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
     //private static final Logger logger = Logger.getLogger(CoverageObject.class.getName());
 
-	public Coverage call = new Coverage();	//method
-	public Coverage statement = new Coverage();	//line
-	public Coverage mcdc = new Coverage();	// complexity
-	public Coverage branch = new Coverage();
+	/*
+	 * Coverages set as a whole, e.g. the persisted ones of the build action. Report
+	 * nodes leave them null and keep their values in the packed counters instead.
+	 */
+	public Coverage call;	//method
+	public Coverage statement;	//line
+	public Coverage mcdc;	// complexity
+	public Coverage branch;
+
+	private static final CoverageElement.Type[] TYPES = CoverageElement.Type.values();
+	private static final int MIN_GRAPH_SIZE = 50;
+	private static final int MAX_GRAPH_SIZE = 2000;
+	private static final CoverageElement.Type[] COLUMNS = {
+			CoverageElement.Type.STATEMENT, CoverageElement.Type.BRANCH,
+			CoverageElement.Type.MCDC, CoverageElement.Type.CALL};
 
+	/**
+	 * One counter per {@link CoverageElement.Type} in the form of {@link Coverage#pack(int, int)},
+	 * created on the first write.
+	 */
+	private transient long[] counters;
 
 
 	/**
@@ -152,17 +176,17 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 
 	@Exported(inline=true)
 	public Coverage getCallCoverage() {
-		return call;
+		return getCoverage(CoverageElement.Type.CALL);
 	}
 
 	@Exported(inline=true)
 	public Coverage getMCDCCoverage() {
-		return mcdc;
+		return getCoverage(CoverageElement.Type.MCDC);
 	}
 
 	@Exported(inline=true)
 	public Coverage getBranchCoverage() {
-		return branch;
+		return getCoverage(CoverageElement.Type.BRANCH);
 	}
 
 	/**
@@ -171,7 +195,85 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 	 */
 	@Exported(inline=true)
 	public Coverage getStatementCoverage() {
-		return statement;
+		return getCoverage(CoverageElement.Type.STATEMENT);
+	}
+
+	/**
+	 * Gets the coverage of one type, the field if it is set and otherwise a view of the packed counter.
+	 * @param type coverage type
+	 * @return the coverage, never null
+	 */
+	public Coverage getCoverage(CoverageElement.Type type) {
+		Coverage c = field(type);
+		if (c != null) {
+			return c;
+		}
+		if (counters == null) {
+			counters = new long[TYPES.length];
+		}
+		return new Coverage(counters, type);
+	}
+
+	private Coverage field(CoverageElement.Type type) {
+		switch (type) {
+		case BRANCH:
+			return branch;
+		case STATEMENT:
+			return statement;
+		case CALL:
+			return call;
+		default:
+			return mcdc;
+		}
+	}
+
+	private long counter(CoverageElement.Type type) {
+		Coverage c = field(type);
+		if (c != null) {
+			return c.isInitialized() ? Coverage.pack(c.getMissed(), c.getCovered()) : 0;
+		}
+		return counters == null ? 0 : counters[type.ordinal()];
+	}
+
+	/**
+	 * Sets a counter, like {@link Coverage#accumulate(int, int)} but without creating a {@link Coverage}.
+	 * @param type coverage type
+	 * @param missed missed count
+	 * @param covered covered count
+	 */
+	public void setCounter(CoverageElement.Type type, int missed, int covered) {
+		Coverage c = field(type);
+		if (c != null) {
+			c.accumulate(missed, covered);
+			return;
+		}
+		if (counters == null) {
+			counters = new long[TYPES.length];
+		}
+		counters[type.ordinal()] = Coverage.pack(missed, covered);
+	}
+
+	/**
+	 * Adds to a counter, like {@link Coverage#accumulatePP(int, int)}.
+	 * @param type coverage type
+	 * @param missed missed count to add
+	 * @param covered covered count to add
+	 */
+	public void addCounter(CoverageElement.Type type, int missed, int covered) {
+		long counter = counter(type);
+		setCounter(type, Coverage.missed(counter) + missed, Coverage.covered(counter) + covered);
+	}
+
+	public boolean hasCoverage(CoverageElement.Type type) {
+		return Coverage.isInitialized(counter(type));
+	}
+
+	public int getMissed(CoverageElement.Type type) {
+		return Coverage.missed(counter(type));
+	}
+
+	public int getCovered(CoverageElement.Type type) {
+		return Coverage.covered(counter(type));
 	}
 
 	/**
@@ -192,26 +294,47 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 	
 	public CoverageObject<?> getParent() {return null;}
 
+	/**
+	 * The newest point of the trend graph of this object; its previous results are the
+	 * older points. This object by default, subclasses may answer from stored trend data
+	 * instead of walking through the previous builds.
+	 * @return the object the graph starts from
+	 */
+	protected CoverageObject<?> getTrendHead() {
+		return this;
+	}
+
+	/**
+	 * @return the time of the build, the last modification of the graph
+	 */
+	protected Calendar getGraphTimestamp() {
+		return getBuild().getTimestamp();
+	}
+
+	/**
+	 * @return the label of this object on the category axis of the graph
+	 */
+	protected Comparable<?> getGraphLabel() {
+		return new NumberOnlyBuildLabel(getBuild());
+	}
+
 	/**
 	 * Used in the view to print out four table columns with the coverage info.
 	 * @return HTML code.
 	 */
 	public String printFourCoverageColumns() {
 		StringBuilder buf = new StringBuilder();
-		mcdc.setType(CoverageElement.Type.MCDC);
-		branch.setType(CoverageElement.Type.BRANCH);
-		statement.setType(CoverageElement.Type.STATEMENT);
-		call.setType(CoverageElement.Type.CALL);
-
-		printRatioCell(isFailed(), statement, buf);
-		printRatioCell(isFailed(), branch, buf);
-		printRatioCell(isFailed(), mcdc, buf);
-		printRatioCell(isFailed(), call, buf);
+		for (CoverageElement.Type type : COLUMNS) {
+			long counter = counter(type);
+			if (Coverage.isInitialized(counter)) {
+				printRatioCell(isFailed(), type, Coverage.missed(counter), Coverage.covered(counter), buf);
+			}
+		}
 		return buf.toString();
 	}
 
 	public boolean hasStatementCoverage() {
-		return statement.isInitialized();
+		return hasCoverage(CoverageElement.Type.STATEMENT);
 	}
 
 	public boolean hasClassCoverage() {
@@ -219,52 +342,70 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 	}
 
 
-	static NumberFormat dataFormat = new DecimalFormat("000.00", new DecimalFormatSymbols(Locale.US));
+	/**
+	 * {@link DecimalFormat} is not thread-safe, and pages are rendered concurrently.
+	 */
+	private static final ThreadLocal<NumberFormat> DATA_FORMAT = ThreadLocal.withInitial(
+			() -> new DecimalFormat("000.00", new DecimalFormatSymbols(Locale.US)));
 	static NumberFormat percentFormat = new DecimalFormat("0.0", new DecimalFormatSymbols(Locale.US));
 	static NumberFormat intFormat = new DecimalFormat("0", new DecimalFormatSymbols(Locale.US));
 
+	/**
+	 * Formats a percentage for the {@code data} attribute of a cell, by which the table is sorted.
+	 * @param percentage between 0 and 100
+	 * @return the percentage with three integer and two fraction digits
+	 */
+	protected static String formatData(float percentage) {
+		return DATA_FORMAT.get().format(percentage);
+	}
+
 	protected void printRatioCell(boolean failed, Coverage ratio, StringBuilder buf) {
 		if (ratio != null && ratio.isInitialized()) {
-			String bgColor = "#FFFFFF";
-			
-			buf.append("<td bgcolor='").append(bgColor).append("'");
-			buf.append(" data='").append(dataFormat.format(ratio.getPercentageFloat()));
-			buf.append("'>\n");
-			printRatioTable(ratio, buf);
-			buf.append("</td>\n");
+			printRatioCell(failed, ratio.getType(), ratio.getMissed(), ratio.getCovered(), buf);
 		}
 	}
 
+	/**
+	 * Prints the cell of one initialized counter.
+	 * @param failed whether the object failed a rule
+	 * @param type coverage type
+	 * @param missed missed count
+	 * @param covered covered count
+	 * @param buf output
+	 */
+	protected void printRatioCell(boolean failed, CoverageElement.Type type, int missed, int covered, StringBuilder buf) {
+		String bgColor = "#FFFFFF";
+
+		buf.append("<td bgcolor='").append(bgColor).append("'");
+		buf.append(" data='").append(formatData(Coverage.getPercentageFloat(missed, covered)));
+		buf.append("'>\n");
+		printRatioTable(missed, covered, buf);
+		buf.append("</td>\n");
+	}
+
 	protected void printRatioTable(Coverage ratio, StringBuilder buf){
+		printRatioTable(ratio.getMissed(), ratio.getCovered(), buf);
+	}
+
+	protected void printRatioTable(int missed, int covered, StringBuilder buf){
+		int percentage = Math.round(Coverage.getPercentageFloat(missed, covered));
 		buf.append("<table class='percentgraph' cellpadding='0' cellspacing='0'><tr class='percentgraph'>")
-		.append("<td style='width:40px' class='data'>").append(ratio.getPercentage()).append("%</td>")
+		.append("<td style='width:40px' class='data'>").append(percentage).append("%</td>")
 		.append("<td class='percentgraph'>")
 		.append("<div class='percentgraph' style='width:100px'>")
 		.append("<div class='redbar' style='width:")
-		.append(100 - ratio.getPercentage()).append("px'>")
+		.append(100 - percentage).append("px'>")
 		.append("</div></div></td></tr><tr><td colspan='2'>")
-		.append("<span class='text'><b>M:</b> ").append(ratio.getMissed())
-		.append(" <b>C:</b> ").append(ratio.getCovered()).append("</span></td></tr></table>\n");
+		.append("<span class='text'><b>M:</b> ").append(missed)
+		.append(" <b>C:</b> ").append(covered).append("</span></td></tr></table>\n");
 	}
 	
 	protected <ReportLevel extends AggregatedReport<?,?,?> > void setAllCovTypes( ReportLevel reportToSet, ICoverageNode covReport) {
 		
-		Coverage tempCov = new Coverage();
-		
-		tempCov.accumulate(covReport.getBranchCounter().getMissedCount(), covReport.getBranchCounter().getCoveredCount());
-		reportToSet.branch = tempCov;
-		
-		tempCov = new Coverage();
-		tempCov.accumulate(covReport.getLineCounter().getMissedCount(), covReport.getLineCounter().getCoveredCount());
-		reportToSet.statement = tempCov;
-				
-		tempCov = new Coverage();
-		tempCov.accumulate(covReport.getMethodCounter().getMissedCount(), covReport.getMethodCounter().getCoveredCount());
-		reportToSet.call = tempCov;
-		
-		tempCov = new Coverage();
-		tempCov.accumulate(covReport.getComplexityCounter().getMissedCount(), covReport.getComplexityCounter().getCoveredCount());
-		reportToSet.mcdc = tempCov;
+		reportToSet.setCounter(CoverageElement.Type.BRANCH, covReport.getBranchCounter().getMissedCount(), covReport.getBranchCounter().getCoveredCount());
+		reportToSet.setCounter(CoverageElement.Type.STATEMENT, covReport.getLineCounter().getMissedCount(), covReport.getLineCounter().getCoveredCount());
+		reportToSet.setCounter(CoverageElement.Type.CALL, covReport.getMethodCounter().getMissedCount(), covReport.getMethodCounter().getCoveredCount());
+		reportToSet.setCounter(CoverageElement.Type.MCDC, covReport.getComplexityCounter().getMissedCount(), covReport.getComplexityCounter().getCoveredCount());
 		
 	}
 	
@@ -272,26 +413,41 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 		
 		setAllCovTypes(reportToSet, covReport);
 		
-		if (this.maxBranch < reportToSet.branch.getTotal()) {
-			this.maxBranch = reportToSet.branch.getTotal();
+		int total = reportToSet.getMissed(CoverageElement.Type.BRANCH) + reportToSet.getCovered(CoverageElement.Type.BRANCH);
+		if (this.maxBranch < total) {
+			this.maxBranch = total;
 		}
 
-		if (this.maxStatement < reportToSet.statement.getTotal()) {
-			this.maxStatement = reportToSet.statement.getTotal();
+		total = reportToSet.getMissed(CoverageElement.Type.STATEMENT) + reportToSet.getCovered(CoverageElement.Type.STATEMENT);
+		if (this.maxStatement < total) {
+			this.maxStatement = total;
 		}
 		
-		if (this.maxCall < reportToSet.call.getTotal()) {
-			this.maxCall = reportToSet.call.getTotal();
+		total = reportToSet.getMissed(CoverageElement.Type.CALL) + reportToSet.getCovered(CoverageElement.Type.CALL);
+		if (this.maxCall < total) {
+			this.maxCall = total;
 		}
 
-		if (this.maxMcdc < reportToSet.mcdc.getTotal()) {
-			this.maxMcdc = reportToSet.mcdc.getTotal();
+		total = reportToSet.getMissed(CoverageElement.Type.MCDC) + reportToSet.getCovered(CoverageElement.Type.MCDC);
+		if (this.maxMcdc < total) {
+			this.maxMcdc = total;
 		}
 	}
 
 	/**
-	 * Generates the graph that shows the coverage trend up to this report.
-	 * @param req Stapler request from which context, graph width and graph height are read
+	 * Keeps a width or height from a request in a range that is cheap to render and to
+	 * cache, every size is cached separately.
+	 */
+	static int clampGraphSize(int size) {
+		return Math.max(MIN_GRAPH_SIZE, Math.min(size, MAX_GRAPH_SIZE));
+	}
+
+	/**
+	 * Generates the graph that shows the coverage trend up to this report. Long trends are
+	 * reduced to at most {@code maxPoints} builds, by default one per two pixels of width.
+	 * The size is kept between {@value #MIN_GRAPH_SIZE} and {@value #MAX_GRAPH_SIZE} pixels.
+	 * Within a job, images are served from the {@link CTGraphCache}.
+	 * @param req Stapler request from which context, graph width, graph height and maxPoints are read
 	 * @param rsp Stapler response to which is sent the graph
 	 * @throws IOException if any I/O error occurs
 	 */
@@ -303,23 +459,37 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 			return;
 		}
 
-		Run<?,?> build = getBuild();
-		Calendar t = build.getTimestamp();
-
 		String w = Util.fixEmptyAndTrim(req.getParameter("width"));
 		String h = Util.fixEmptyAndTrim(req.getParameter("height"));
-		int width = (w != null) ? Integer.parseInt(w) : 500;
-		int height = (h != null) ? Integer.parseInt(h) : 200;
+		int width = clampGraphSize((w != null) ? Integer.parseInt(w) : 500);
+		int height = clampGraphSize((h != null) ? Integer.parseInt(h) : 200);
+		String m = Util.fixEmptyAndTrim(req.getParameter("maxPoints"));
+		// more builds than pixels cannot be told apart, 0 keeps all of them
+		int maxPoints = (m != null) ? Math.max(0, Math.min(Integer.parseInt(m), width)) : width / 2;
 
 		CoverageGraphLayout layout = new CoverageGraphLayout()
 				.baseStroke(4f)
+				.maxPoints(maxPoints)
 				.axis()
 				.plot().type(CoverageType.STATEMENT).value(CoverageValue.PERCENTAGE).color(Color.GREEN)
 				.plot().type(CoverageType.MCDC).value(CoverageValue.PERCENTAGE).color(Color.DARK_GRAY)
 				.plot().type(CoverageType.CALL).value(CoverageValue.PERCENTAGE).color(Color.BLUE)
 				.plot().type(CoverageType.BRANCH).value(CoverageValue.PERCENTAGE).color(Color.RED);
 
-		createGraph(t, width, height,layout).doPng(req, rsp);
+		Job<?, ?> job = req.findAncestorObject(Job.class);
+		if (job == null) {
+			CoverageObject<?> head = getTrendHead();
+			head.createGraph(head.getGraphTimestamp(), width, height, layout).doPng(req, rsp);
+			return;
+		}
+		Run<?, ?> last = job.getLastBuild();
+		String key = req.getRequestURI() + '\n' + (last != null ? last.getNumber() : 0) + '\n' + width + 'x' + height + '\n' + layout;
+		CTGraphCache.get().get(job.getRootDir(), key, () -> {
+			CoverageObject<?> head = getTrendHead();
+			ByteArrayOutputStream png = new ByteArrayOutputStream();
+			ChartUtilities.writeChartAsPNG(png, head.createGraph(head.getGraphTimestamp(), width, height, layout).getGraph(), width, height);
+			return png.toByteArray();
+		}).serve(req, rsp);
 	}
 
 	GraphImpl createGraph(final Calendar t, final int width, final int height, final CoverageGraphLayout layout) throws IOException
@@ -327,21 +497,26 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 		return new GraphImpl(this, t, width, height, layout)
 		{
 			@Override
-			protected Map<Axis, DataSetBuilder<String, NumberOnlyBuildLabel>> createDataSetBuilder(CoverageObject<SELF> obj)
+			protected Map<Axis, DataSetBuilder<String, Comparable<?>>> createDataSetBuilder(CoverageObject<SELF> obj)
 			{
-				Map<Axis, DataSetBuilder<String, NumberOnlyBuildLabel>> builders = new LinkedHashMap<>();
+				Map<Axis, DataSetBuilder<String, Comparable<?>>> builders = new LinkedHashMap<>();
 				for (Axis axis : layout.getAxes())
 				{
-					builders.put(axis, new DataSetBuilder<String, NumberOnlyBuildLabel>());
+					builders.put(axis, new DataSetBuilder<String, Comparable<?>>());
 					if (axis.isCrop()) bounds.put(axis, new Bounds());
 				}
 
+				List<Plot> plots = layout.getPlots();
+				List<Comparable<?>> labels = new ArrayList<>();
+				List<Number[]> rows = new ArrayList<>();
 				Map<Plot, Number> last = new HashMap<>();
 				for (CoverageObject<SELF> a = obj; a != null; a = a.getPreviousResult())
 				{
-					NumberOnlyBuildLabel label = new NumberOnlyBuildLabel(a.getBuild());
-					for (Plot plot : layout.getPlots())
+					labels.add(a.getGraphLabel());
+					Number[] row = new Number[plots.size()];
+					for (int p = 0; p < row.length; p++)
 					{
+						Plot plot = plots.get(p);
 						Number value = plot.getValue(a);
 						Axis axis = plot.getAxis();
 						if (axis.isSkipZero() && (value == null || value.floatValue() == 0f)) value = null;
@@ -354,7 +529,30 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 						{
 							value = last.get(plot);
 						}
-						builders.get(axis).add(value, plot.getMessage(), label);
+						row[p] = value;
+					}
+					rows.add(row);
+				}
+
+				// oldest build first for the downsampling
+				int n = rows.size();
+				float[][] series = new float[plots.size()][n];
+				for (int i = 0; i < n; i++)
+				{
+					Number[] row = rows.get(n - 1 - i);
+					for (int p = 0; p < row.length; p++)
+					{
+						series[p][i] = row[p] != null ? row[p].floatValue() : Float.NaN;
+					}
+				}
+				for (int i : TrendSeries.downsample(series, layout.getMaxPoints()))
+				{
+					Comparable<?> label = labels.get(n - 1 - i);
+					Number[] row = rows.get(n - 1 - i);
+					for (int p = 0; p < row.length; p++)
+					{
+						Plot plot = plots.get(p);
+						builders.get(plot.getAxis()).add(row[p], plot.getMessage(), label);
 					}
 				}
 				return builders;
@@ -362,6 +560,73 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 		};
 	}
 
+	/**
+	 * Serves the coverage trend up to this report as JSON, for the chart drawn in the
+	 * browser, see {@code trendChart.jelly}. Parameter: {@code maxPoints}, the largest
+	 * number of builds, by default all of them. Within a job, the trend is served from
+	 * the {@link CTGraphCache} like the graphs, so the history of each build is not read
+	 * again for every page load.
+	 * @param req Stapler request
+	 * @param rsp Stapler response
+	 * @throws IOException if any I/O error occurs
+	 */
+	@SuppressWarnings({"lgtm[jenkins/no-permission-check]", "lgtm[jenkins/csrf]"})
+	public void doTrend(StaplerRequest req, StaplerResponse rsp) throws IOException {
+		String m = Util.fixEmptyAndTrim(req.getParameter("maxPoints"));
+		int maxPoints = (m != null) ? Math.max(0, Integer.parseInt(m)) : 0;
+		Job<?, ?> job = req.findAncestorObject(Job.class);
+		if (job == null) {
+			rsp.setContentType("application/json;charset=UTF-8");
+			rsp.getWriter().print(getTrendHead().getTrend(maxPoints).toString());
+			return;
+		}
+		Run<?, ?> last = job.getLastBuild();
+		String key = req.getRequestURI() + '\n' + (last != null ? last.getNumber() : 0) + '\n' + maxPoints;
+		CTGraphCache.get().getJson(job.getRootDir(), key,
+				() -> getTrendHead().getTrend(maxPoints).toString().getBytes(StandardCharsets.UTF_8)).serve(req, rsp);
+	}
+
+	/**
+	 * The points of the trend graph starting at this object, oldest first. Each has the
+	 * label and time of its build and the missed and covered counts and percentage of
+	 * each type it has coverage of.
+	 * @param maxPoints the largest number of builds, see {@link TrendSeries}
+	 * @return the trend as {@code {"builds": [...]}}
+	 */
+	public JSONObject getTrend(int maxPoints) {
+		List<CoverageObject<?>> points = new ArrayList<>();
+		for (CoverageObject<?> a = this; a != null; a = a.getPreviousResult()) {
+			points.add(a);
+		}
+		Collections.reverse(points);
+
+		float[][] series = new float[COLUMNS.length][points.size()];
+		for (int i = 0; i < points.size(); i++) {
+			for (int c = 0; c < COLUMNS.length; c++) {
+				CoverageObject<?> a = points.get(i);
+				series[c][i] = a.hasCoverage(COLUMNS[c])
+						? Coverage.getPercentageFloat(a.getMissed(COLUMNS[c]), a.getCovered(COLUMNS[c])) : Float.NaN;
+			}
+		}
+		JSONArray builds = new JSONArray();
+		for (int i : TrendSeries.downsample(series, maxPoints)) {
+			CoverageObject<?> a = points.get(i);
+			JSONObject build = new JSONObject()
+					.element("label", a.getGraphLabel().toString())
+					.element("timestamp", a.getGraphTimestamp().getTimeInMillis());
+			for (int c = 0; c < COLUMNS.length; c++) {
+				if (!Float.isNaN(series[c][i])) {
+					build.element(COLUMNS[c].name().toLowerCase(Locale.ENGLISH), new JSONObject()
+							.element("missed", a.getMissed(COLUMNS[c]))
+							.element("covered", a.getCovered(COLUMNS[c]))
+							.element("percentage", series[c][i]));
+				}
+			}
+			builds.element(build);
+		}
+		return new JSONObject().element("builds", builds);
+	}
+
 	public Api getApi() {
 		return new Api(this);
 	}
@@ -391,7 +656,7 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 			this.layout =layout;
 		}
 
-		protected abstract Map<Axis, DataSetBuilder<String, NumberOnlyBuildLabel>> createDataSetBuilder(CoverageObject<SELF> obj);
+		protected abstract Map<Axis, DataSetBuilder<String, Comparable<?>>> createDataSetBuilder(CoverageObject<SELF> obj);
 
 		public JFreeChart getGraph( )
 		{
@@ -401,8 +666,8 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 		@Override
 		protected JFreeChart createGraph() {
 			Map<Axis, CategoryDataset> dataSets = new LinkedHashMap<>();
-			Map<Axis, DataSetBuilder<String, NumberOnlyBuildLabel>> dataSetBuilders = createDataSetBuilder(obj);
-			for (Entry<Axis, DataSetBuilder<String, NumberOnlyBuildLabel>> e : dataSetBuilders.entrySet())
+			Map<Axis, DataSetBuilder<String, Comparable<?>>> dataSetBuilders = createDataSetBuilder(obj);
+			for (Entry<Axis, DataSetBuilder<String, Comparable<?>>> e : dataSetBuilders.entrySet())
 			{
 				dataSets.put(e.getKey(), e.getValue().build());
 			}
@@ -459,9 +724,9 @@ public abstract class CoverageObject<SELF extends CoverageObject<SELF>> {
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + ":"
-				+ " branch=" + branch
-				+ " complexity=" + mcdc
-				+ " line=" + statement
-				+ " method=" + call;
+				+ " branch=" + getBranchCoverage()
+				+ " complexity=" + getMCDCCoverage()
+				+ " line=" + getStatementCoverage()
+				+ " method=" + getCallCoverage();
 	}
 }
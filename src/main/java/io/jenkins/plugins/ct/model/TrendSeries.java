@@ -0,0 +1,89 @@
+package io.jenkins.plugins.ct.model;
+
+import java.util.Arrays;
+
+/**
+ * Reduces the builds of a trend graph to a bounded number of points.
+ * <p>
+ * Uses largest-triangle-three-buckets: the first and last build are always kept, the
+ * others are split into equal buckets and from each bucket the build is kept that forms
+ * the largest triangle with the build kept before it and the average of the next bucket.
+ * Peaks and drops therefore survive while flat stretches are thinned out. All lines of
+ * a graph share their builds, so the triangle areas of the lines are added up and one
+ * set of builds is chosen for all of them.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class TrendSeries {
+
+	private TrendSeries() {
+	}
+
+	/**
+	 * @param series the values of each line, oldest build first, all of the same length;
+	 *        {@link Float#NaN} for builds without a value
+	 * @param maxPoints the largest number of builds to keep, 0 or less for all of them
+	 * @return the indices of the builds to keep in ascending order
+	 */
+	public static int[] downsample(float[][] series, int maxPoints) {
+		int n = series.length == 0 ? 0 : series[0].length;
+		if (maxPoints <= 0 || maxPoints >= n) {
+			int[] all = new int[n];
+			Arrays.setAll(all, i -> i);
+			return all;
+		}
+		if (maxPoints < 3) {
+			return maxPoints == 1 ? new int[] {n - 1} : new int[] {0, n - 1};
+		}
+
+		int[] kept = new int[maxPoints];
+		double bucket = (double) (n - 2) / (maxPoints - 2);
+		float[] average = new float[series.length];
+		int a = 0;
+		for (int i = 0; i < maxPoints - 2; i++) {
+			// average of the next bucket, or the last build for the last bucket
+			int nextFrom = (int) ((i + 1) * bucket) + 1;
+			int nextTo = Math.min((int) ((i + 2) * bucket) + 1, n);
+			double averageX = (nextFrom + nextTo - 1) / 2.0;
+			for (int s = 0; s < series.length; s++) {
+				average[s] = average(series[s], nextFrom, nextTo);
+			}
+
+			int from = (int) (i * bucket) + 1;
+			int to = (int) ((i + 1) * bucket) + 1;
+			double maxArea = -1;
+			int chosen = from;
+			for (int j = from; j < to; j++) {
+				double area = 0;
+				for (int s = 0; s < series.length; s++) {
+					float ya = series[s][a];
+					float yj = series[s][j];
+					if (Float.isNaN(ya) || Float.isNaN(yj) || Float.isNaN(average[s])) {
+						continue;
+					}
+					area += Math.abs((a - averageX) * (yj - ya) - (a - j) * (average[s] - ya));
+				}
+				if (area > maxArea) {
+					maxArea = area;
+					chosen = j;
+				}
+			}
+			kept[i + 1] = chosen;
+			a = chosen;
+		}
+		kept[maxPoints - 1] = n - 1;
+		return kept;
+	}
+
+	private static float average(float[] values, int from, int to) {
+		float sum = 0;
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			if (!Float.isNaN(values[i])) {
+				sum += values[i];
+				count++;
+			}
+		}
+		return count > 0 ? sum / count : Float.NaN;
+	}
+}
@@ -29,6 +29,7 @@
  */
 package io.jenkins.plugins.ct.portlet;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.text.SimpleDateFormat;
@@ -42,6 +43,8 @@ import java.util.TreeMap;
 import hudson.model.Job;
 import hudson.model.Run;
 import io.jenkins.plugins.ct.CTBuildAction;
+import io.jenkins.plugins.ct.CTTrendIndex;
+import io.jenkins.plugins.ct.model.CoverageObject;
 import io.jenkins.plugins.ct.portlet.bean.CTCoverageResultSummary;
 import io.jenkins.plugins.ct.portlet.utils.Utils;
 
@@ -82,29 +85,27 @@ public final class CTLoadData {
     firstDate.add(Calendar.DAY_OF_MONTH, -daysNumber);
 
     // For each job, get JaCoCo coverage results according with
-    // date range (last build date minus number of days)
+    // date range (last build date minus number of days), newest first,
+    // from the trend of the job rather than from its builds
     for (Job<?,?> job : jobs) {
 
-      Run<?,?> run = job.getLastCompletedBuild();
-
-      if (null != run) {
-          Calendar runDate = run.getTimestamp();
-
-        while (runDate.after(firstDate)) {
-
-          summarize(summaries, run, runDate, job);
-
-          run = run.getPreviousBuild();
-          while (run != null && run.isBuilding()) {
-            run = run.getPreviousBuild();
-          }
+      List<CTTrendIndex.Point> points;
+      try {
+        points = CTTrendIndex.of(job).getPoints();
+      } catch (IOException e) {
+        continue;
+      }
 
-          if (null == run) {
-            break;
-          }
+      for (int i = points.size() - 1; i >= 0; i--) {
+        CTTrendIndex.Point point = points.get(i);
+        Calendar runDate = Calendar.getInstance();
+        runDate.setTimeInMillis(point.getTimestamp());
 
-          runDate = run.getTimestamp();
+        if (!runDate.after(firstDate)) {
+          break;
         }
+
+        summarize(summaries, getResult(job, point), runDate, job);
       }
     }
 
@@ -119,17 +120,14 @@ public final class CTLoadData {
    * @param summaries
    *          a Map of JacocoCoverageResultSummary objects indexed by
    *          dates
-   * @param run
-   *          the build which will provide information about the
-   *          coverage result
+   * @param jacocoCoverageResult
+   *          the coverage result of a build
    * @param runDate
    *          the date on which the build was performed
    * @param job
    *          job from the DashBoard Portlet view
    */
-  private static void summarize(Map<String, CTCoverageResultSummary> summaries, Run<?,?> run, Calendar runDate, Job<?,?> job) {
-
-    CTCoverageResultSummary jacocoCoverageResult = getResult(run);
+  private static void summarize(Map<String, CTCoverageResultSummary> summaries, CTCoverageResultSummary jacocoCoverageResult, Calendar runDate, Job<?,?> job) {
 	
 	String date = new SimpleDateFormat("yyyy-MM-dd").format(runDate.getTime());
 
@@ -177,8 +175,19 @@ public final class CTLoadData {
    * @return JaCoCoCoverageTestResult the coverage result
    */
   public static CTCoverageResultSummary getResult(Run<?,?> run) {
-    CTBuildAction jacocoAction = run.getAction(CTBuildAction.class);
+    return getResult(run.getParent(), run.getAction(CTBuildAction.class));
+  }
 
+  /**
+   * Get the coverage result of a build from its recorded coverage.
+   *
+   * @param job
+   *          the job of the build
+   * @param jacocoAction
+   *          the coverage of the build, e.g. its point in the trend of the job; may be null
+   * @return the coverage result
+   */
+  private static CTCoverageResultSummary getResult(Job<?,?> job, CoverageObject<?> jacocoAction) {
     float statementCoverage = 0.0f;
     float callCoverage = 0.0f;
     float branchCoverage = 0.0f;
@@ -200,7 +209,7 @@ public final class CTLoadData {
       }
     }
     return new CTCoverageResultSummary(
-        run.getParent(), statementCoverage, callCoverage, 
+        job, statementCoverage, callCoverage, 
         branchCoverage, mcdcScore);
   }
 
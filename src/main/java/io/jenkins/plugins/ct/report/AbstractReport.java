@@ -18,10 +18,23 @@ import java.io.IOException;
 public abstract class AbstractReport<PARENT extends AggregatedReport<?,PARENT,?>,
     SELF extends CoverageObject<SELF>> extends CoverageObject<SELF> implements ModelObject {
 
+    /**
+     * Rough heap size of a report object with its counters, without names and children,
+     * see {@link CoverageReport#getEstimatedSize()}.
+     */
+    static final int OBJECT_SIZE = 160;
+
     private String name;
 
     private PARENT parent;
 
+    /**
+     * @return rough heap size of a string, 0 for null
+     */
+    static long sizeOf(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+
     public void addCoverage(CoverageElement cv) throws IOException {
         cv.addTo(this);
     }
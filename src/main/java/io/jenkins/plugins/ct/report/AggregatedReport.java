@@ -19,16 +19,45 @@ public abstract class AggregatedReport<PARENT extends AggregatedReport<?,PARENT,
     SELF extends AggregatedReport<PARENT,SELF,CHILD>,
     CHILD extends AbstractReport<SELF,CHILD>> extends AbstractReport<PARENT,SELF> {
 
-    private final Map<String, CHILD> children = new TreeMap<>();
+    private Map<String, CHILD> children = new TreeMap<>();
 
     public void add(CHILD child) {
-        children.put(child.getName(),child);
+        put(child.getName(),child);
     }
 
+    /**
+     * Adds a child under the given name. A frozen report becomes mutable again.
+     */
+    protected void put(String name, CHILD child) {
+        if (children instanceof SortedArrayMap) {
+            children = new TreeMap<>(children);
+        }
+        children.put(name,child);
+    }
+
+    /**
+     * Children by name, in the order of their names. After {@link #freeze()} the map is read-only;
+     * use {@link #add(AbstractReport)} to add children.
+     */
     public Map<String,CHILD> getChildren() {
         return children;
     }
 
+    /**
+     * Replaces the children of this report and its descendants by a {@link SortedArrayMap}
+     * once the tree is loaded.
+     */
+    void freeze() {
+        if (!(children instanceof SortedArrayMap)) {
+            children = new SortedArrayMap<>(children);
+        }
+        for (CHILD c : children.values()) {
+            if (c instanceof AggregatedReport) {
+                ((AggregatedReport<?, ?, ?>) c).freeze();
+            }
+        }
+    }
+
     @Override
     protected void setParent(PARENT p) {
         super.setParent(p);
@@ -0,0 +1,169 @@
+package io.jenkins.plugins.ct.report;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import io.jenkins.plugins.ct.model.Coverage;
+import io.jenkins.plugins.ct.model.CoverageElement;
+
+/**
+ * Sort orders of the functions of a {@link CoverageReport} for the paged breakdown table,
+ * see {@link CoverageReport#doBreakdown(org.kohsuke.stapler.StaplerRequest, org.kohsuke.stapler.StaplerResponse)}.
+ * <p>
+ * The functions are kept in name order, the order of every other sort key is computed
+ * on its first use and kept as an array of positions, so a page is a walk over that array.
+ *
+ * @author Jang Hyo Jae
+ */
+final class BreakdownIndex {
+
+    /**
+     * Sort keys of the breakdown table.
+     */
+    enum Sort {
+        NAME(null),
+        STATEMENT(CoverageElement.Type.STATEMENT),
+        BRANCH(CoverageElement.Type.BRANCH),
+        MCDC(CoverageElement.Type.MCDC),
+        CALL(CoverageElement.Type.CALL),
+        /**
+         * Missed statements.
+         */
+        MISSED(CoverageElement.Type.STATEMENT);
+
+        private final CoverageElement.Type type;
+
+        Sort(CoverageElement.Type type) {
+            this.type = type;
+        }
+
+        /**
+         * @param s sort key in any case, may be null
+         * @return the sort key, {@link #NAME} if there is none by that name
+         */
+        static Sort parse(String s) {
+            for (Sort sort : values()) {
+                if (sort.name().equalsIgnoreCase(s)) {
+                    return sort;
+                }
+            }
+            return NAME;
+        }
+
+        /**
+         * Percentage, or the missed count for {@link #MISSED}. Functions without
+         * that kind of coverage sort before all others.
+         */
+        float value(MethodReport method) {
+            if (!method.hasCoverage(type)) {
+                return -1;
+            }
+            int missed = method.getMissed(type);
+            return this == MISSED ? missed : Coverage.getPercentageFloat(missed, method.getCovered(type));
+        }
+    }
+
+    /**
+     * One page of the table.
+     */
+    static final class Page {
+        /**
+         * Number of functions that match the filter.
+         */
+        final int matches;
+        final List<MethodReport> rows;
+
+        Page(int matches, List<MethodReport> rows) {
+            this.matches = matches;
+            this.rows = rows;
+        }
+    }
+
+    private final Map<String, MethodReport> children;
+    private final MethodReport[] methods;
+    private final int[][] orders = new int[Sort.values().length][];
+
+    /**
+     * @param children the children of a report, in name order
+     */
+    BreakdownIndex(Map<String, MethodReport> children) {
+        this.children = children;
+        this.methods = children.values().toArray(new MethodReport[0]);
+    }
+
+    /**
+     * @return whether this index was built from the given children
+     */
+    boolean isOf(Map<String, MethodReport> children) {
+        return this.children == children;
+    }
+
+    int size() {
+        return methods.length;
+    }
+
+    /**
+     * @param sort sort key
+     * @param descending whether to walk the order backwards
+     * @param filter case insensitive part of the function name, or null
+     * @param offset index of the first match to return
+     * @param limit maximum number of rows
+     * @return the page
+     */
+    Page query(Sort sort, boolean descending, String filter, int offset, int limit) {
+        int[] order = order(sort);
+        List<MethodReport> rows = new ArrayList<>(Math.min(limit, methods.length));
+        int matches = 0;
+        for (int i = 0; i < order.length; i++) {
+            MethodReport method = methods[order[descending ? order.length - 1 - i : i]];
+            if (filter != null && !containsIgnoreCase(method.getName(), filter)) {
+                continue;
+            }
+            if (matches >= offset && rows.size() < limit) {
+                rows.add(method);
+            }
+            matches++;
+        }
+        return new Page(matches, rows);
+    }
+
+    private synchronized int[] order(Sort sort) {
+        int[] order = orders[sort.ordinal()];
+        if (order == null) {
+            order = new int[methods.length];
+            if (sort == Sort.NAME) {
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+            } else {
+                float[] values = new float[methods.length];
+                Integer[] boxed = new Integer[methods.length];
+                for (int i = 0; i < methods.length; i++) {
+                    values[i] = sort.value(methods[i]);
+                    boxed[i] = i;
+                }
+                // stable, so equal values stay in name order
+                Arrays.sort(boxed, (a, b) -> Float.compare(values[a], values[b]));
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = boxed[i];
+                }
+            }
+            orders[sort.ordinal()] = order;
+        }
+        return order;
+    }
+
+    private static boolean containsIgnoreCase(String s, String part) {
+        if (s == null) {
+            return false;
+        }
+        for (int i = 0; i + part.length() <= s.length(); i++) {
+            if (s.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,301 @@
+package io.jenkins.plugins.ct.report;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+import io.jenkins.plugins.ct.model.CoverageElement;
+
+/**
+ * The functions and lines whose coverage differs between two reports.
+ * <p>
+ * The functions of a report are kept in name order and the lines of a function in
+ * line order, see {@link LineTable}, so both reports are compared in one pass that
+ * merges the two function lists and, for functions in both, their two line tables.
+ * Only the differences are kept.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CoverageDiff {
+
+    /**
+     * Counters compared for each function, in the order of {@link Function#getBefore()}.
+     */
+    public static final CoverageElement.Type[] TYPES = {
+            CoverageElement.Type.STATEMENT, CoverageElement.Type.BRANCH,
+            CoverageElement.Type.MCDC, CoverageElement.Type.CALL
+    };
+
+    /**
+     * How a function changed.
+     */
+    public enum Change {
+        ADDED, REMOVED, CHANGED
+    }
+
+    /**
+     * A line of a function that differs.
+     */
+    public static final class Line {
+        private final int nr;
+        private final int[] before;
+        private final int[] after;
+
+        Line(int nr, int[] before, int[] after) {
+            this.nr = nr;
+            this.before = before;
+            this.after = after;
+        }
+
+        public int getNr() {
+            return nr;
+        }
+
+        /**
+         * @return missed and covered statements and branches before, null if the line is new
+         */
+        public @CheckForNull int[] getBefore() {
+            return before;
+        }
+
+        /**
+         * @return missed and covered statements and branches after, null if the line is gone
+         */
+        public @CheckForNull int[] getAfter() {
+            return after;
+        }
+
+        /**
+         * @return whether the line is in both reports and fewer of its statements or branches are covered
+         */
+        public boolean isLoss() {
+            // covered statements and covered branches
+            return before != null && after != null && (after[1] < before[1] || after[3] < before[3]);
+        }
+    }
+
+    /**
+     * A function whose coverage differs.
+     */
+    public static final class Function {
+        private final String name;
+        private final String source;
+        private final Change change;
+        private final int[] before;
+        private final int[] after;
+        private final List<Line> lines;
+
+        Function(String name, String source, Change change, int[] before, int[] after, List<Line> lines) {
+            this.name = name;
+            this.source = source;
+            this.change = change;
+            this.before = before;
+            this.after = after;
+            this.lines = lines;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public Change getChange() {
+            return change;
+        }
+
+        /**
+         * @return missed and covered counts of each of {@link #TYPES} before, -1 for
+         *         types without coverage; null for an added function
+         */
+        public @CheckForNull int[] getBefore() {
+            return before;
+        }
+
+        /**
+         * @return the counts after, like {@link #getBefore()}; null for a removed function
+         */
+        public @CheckForNull int[] getAfter() {
+            return after;
+        }
+
+        /**
+         * @return the lines that differ, in line order
+         */
+        public List<Line> getLines() {
+            return lines;
+        }
+
+        /**
+         * @return whether fewer statements or branches of the function are covered, or one of its lines lost coverage
+         */
+        public boolean isLoss() {
+            if (change != Change.CHANGED) {
+                return false;
+            }
+            // covered statements and covered branches
+            if (after[1] < before[1] || after[3] < before[3]) {
+                return true;
+            }
+            for (Line line : lines) {
+                if (line.isLoss()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final List<Function> functions;
+    private final int added;
+    private final int removed;
+    private final int losses;
+
+    private CoverageDiff(List<Function> functions) {
+        this.functions = Collections.unmodifiableList(functions);
+        int a = 0;
+        int r = 0;
+        int l = 0;
+        for (Function f : functions) {
+            if (f.change == Change.ADDED) {
+                a++;
+            } else if (f.change == Change.REMOVED) {
+                r++;
+            } else if (f.isLoss()) {
+                l++;
+            }
+        }
+        this.added = a;
+        this.removed = r;
+        this.losses = l;
+    }
+
+    /**
+     * @param before report of the earlier build
+     * @param after report of the later build
+     * @return the differences
+     */
+    public static CoverageDiff compare(CoverageReport before, CoverageReport after) {
+        List<Function> functions = new ArrayList<>();
+        Iterator<MethodReport> b = before.getChildren().values().iterator();
+        Iterator<MethodReport> a = after.getChildren().values().iterator();
+        MethodReport mb = next(b);
+        MethodReport ma = next(a);
+        while (mb != null || ma != null) {
+            int order = mb == null ? 1 : ma == null ? -1 : mb.getName().compareTo(ma.getName());
+            if (order < 0) {
+                functions.add(new Function(mb.getName(), mb.getSource(), Change.REMOVED, counters(mb), null,
+                        Collections.<Line>emptyList()));
+                mb = next(b);
+            } else if (order > 0) {
+                functions.add(new Function(ma.getName(), ma.getSource(), Change.ADDED, null, counters(ma),
+                        Collections.<Line>emptyList()));
+                ma = next(a);
+            } else {
+                int[] cb = counters(mb);
+                int[] ca = counters(ma);
+                List<Line> lines = compare(mb.getLines(), ma.getLines());
+                if (!lines.isEmpty() || !Arrays.equals(cb, ca)) {
+                    functions.add(new Function(ma.getName(), ma.getSource(), Change.CHANGED, cb, ca, lines));
+                }
+                mb = next(b);
+                ma = next(a);
+            }
+        }
+        return new CoverageDiff(functions);
+    }
+
+    private static MethodReport next(Iterator<MethodReport> it) {
+        return it.hasNext() ? it.next() : null;
+    }
+
+    private static int[] counters(MethodReport m) {
+        int[] counters = new int[2 * TYPES.length];
+        for (int t = 0; t < TYPES.length; t++) {
+            boolean has = m.hasCoverage(TYPES[t]);
+            counters[2 * t] = has ? m.getMissed(TYPES[t]) : -1;
+            counters[2 * t + 1] = has ? m.getCovered(TYPES[t]) : -1;
+        }
+        return counters;
+    }
+
+    /**
+     * Merges two line tables.
+     */
+    static List<Line> compare(LineTable before, LineTable after) {
+        List<Line> lines = null;
+        int i = 0;
+        int j = 0;
+        int nb = before.size();
+        int na = after.size();
+        while (i < nb || j < na) {
+            int order = i == nb ? 1 : j == na ? -1 : Integer.compare(before.get(LineTable.NR, i), after.get(LineTable.NR, j));
+            Line line = null;
+            if (order < 0) {
+                line = new Line(before.get(LineTable.NR, i), row(before, i), null);
+                i++;
+            } else if (order > 0) {
+                line = new Line(after.get(LineTable.NR, j), null, row(after, j));
+                j++;
+            } else {
+                if (!sameRow(before, i, after, j)) {
+                    line = new Line(before.get(LineTable.NR, i), row(before, i), row(after, j));
+                }
+                i++;
+                j++;
+            }
+            if (line != null) {
+                if (lines == null) {
+                    lines = new ArrayList<>();
+                }
+                lines.add(line);
+            }
+        }
+        return lines != null ? lines : Collections.<Line>emptyList();
+    }
+
+    private static boolean sameRow(LineTable t1, int i, LineTable t2, int j) {
+        for (int c = LineTable.MS; c < LineTable.COLUMNS; c++) {
+            if (t1.get(c, i) != t2.get(c, j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] row(LineTable table, int index) {
+        int[] row = new int[LineTable.COLUMNS - 1];
+        for (int c = LineTable.MS; c < LineTable.COLUMNS; c++) {
+            row[c - 1] = table.get(c, index);
+        }
+        return row;
+    }
+
+    /**
+     * @return the functions that differ, in name order
+     */
+    public List<Function> getFunctions() {
+        return functions;
+    }
+
+    public int getAdded() {
+        return added;
+    }
+
+    public int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return number of functions in both reports that lost coverage
+     */
+    public int getLosses() {
+        return losses;
+    }
+}
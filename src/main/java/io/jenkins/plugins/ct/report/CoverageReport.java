@@ -1,6 +1,7 @@
 package io.jenkins.plugins.ct.report;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.DecimalFormat;
@@ -14,16 +15,18 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import javax.servlet.ServletException;
 import javax.xml.parsers.ParserConfigurationException;
 
+import hudson.Util;
 import hudson.model.Run;
 
 import org.apache.commons.digester3.Digester;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.IMethodCoverage;
 import org.jacoco.core.analysis.IPackageCoverage;
 import org.jacoco.core.data.ExecutionDataWriter;
-import org.jacoco.core.internal.analysis.CounterImpl;
-import org.jacoco.core.internal.analysis.MethodCoverageImpl;
 import org.jacoco.core.tools.ExecFileLoader;
 import org.kohsuke.stapler.HttpResponse;
 import org.kohsuke.stapler.StaplerRequest;
@@ -34,10 +37,13 @@ import org.xml.sax.SAXException;
 
 import hudson.util.HttpResponses;
 import io.jenkins.plugins.ct.CTBuildAction;
+import io.jenkins.plugins.ct.CTCoverageChanges;
 import io.jenkins.plugins.ct.CTHealthReportThresholds;
+import io.jenkins.plugins.ct.CTReportDir;
 import io.jenkins.plugins.ct.ExecutionFileLoader;
 import io.jenkins.plugins.ct.model.Coverage;
 import io.jenkins.plugins.ct.model.CoverageElement;
+import io.jenkins.plugins.ct.model.CoverageObject;
 
 /**
  * Root object of the coverage report.
@@ -47,6 +53,7 @@ import io.jenkins.plugins.ct.model.CoverageElement;
  */
 public final class CoverageReport extends AggregatedReport<CoverageReport/*dummy*/,CoverageReport, MethodReport> {
 	private final CTBuildAction action;
+	private volatile BreakdownIndex breakdown;
 
 	private CoverageReport(CTBuildAction action) {
 		this.action = action;
@@ -74,34 +81,104 @@ public final class CoverageReport extends AggregatedReport<CoverageReport/*dummy
 		action.getLogger().println("[CT plugin] Done.");
 	}
 	
+	/**
+	 * Parses the XML reports one after another.
+	 * Report level counters are summed up, a function found in several reports
+	 * is taken from the last one.
+	 *
+	 * @param action CT build action
+	 * @param xmlReports XML reports, not closed by this constructor
+	 * @throws IOException if a report cannot be read or parsed
+	 */
 	@SuppressWarnings("lgtm[jenkins/unsafe-classes]")
 	public CoverageReport(CTBuildAction action, InputStream... xmlReports) throws IOException {
 		this(action);
 		//action.getLogger().println("[CT plugin] Loading packages..");
-        for (InputStream is: xmlReports) {
-          try {
-            createDigester(!Boolean.getBoolean(this.getClass().getName() + ".UNSAFE")).parse(is);
-          } catch (SAXException e) {
-              throw new IOException("Failed to parse XML",e);
-          }
+        if (xmlReports.length == 1) {
+            parse(xmlReports[0]);
+        } else {
+            for (InputStream is: xmlReports) {
+                CoverageReport part = new CoverageReport(action);
+                part.parse(is);
+                merge(part);
+            }
         }
         setParent(null);
+        freeze();
         //action.getLogger().println("[CT plugin] Done.");
     }
+
+	/**
+	 * Merges reports that were parsed separately, e.g. in parallel, in the given order.
+	 * The result is the same as parsing the reports one after another with
+	 * {@link #CoverageReport(CTBuildAction, InputStream...)}.
+	 *
+	 * @param action CT build action
+	 * @param parts reports parsed from one XML file each
+	 */
+	public CoverageReport(CTBuildAction action, List<CoverageReport> parts) {
+		this(action);
+		for (CoverageReport part : parts) {
+			merge(part);
+		}
+		setParent(null);
+		freeze();
+	}
+
+	private void merge(CoverageReport part) {
+		for (CoverageElement.Type type : CoverageElement.Type.values()) {
+			if (part.hasCoverage(type)) {
+				addCounter(type, part.getMissed(type), part.getCovered(type));
+			}
+		}
+		for (MethodReport method : part.getChildren().values()) {
+			put(method.getName(), method);
+		}
+	}
 	
+	/**
+	 * Restores a report from its binary snapshot. Line reports are only read when requested.
+	 *
+	 * @param action CT build action
+	 * @param snapshot snapshot written after an earlier parse of the XML reports
+	 */
+	public CoverageReport(CTBuildAction action, ReportSnapshot snapshot) {
+		this(action);
+		snapshot.fill(this);
+		setParent(null);
+		freeze();
+	}
+
 	@SuppressWarnings("lgtm[jenkins/unsafe-classes]")
 	public CoverageReport(CTBuildAction action, File xmlReport) throws IOException {
         this(action);
         action.getLogger().println("[CT plugin] Loading packages..");
-        try {
-            createDigester(!Boolean.getBoolean(this.getClass().getName() + ".UNSAFE")).parse(xmlReport);
-        } catch (SAXException e) {
+        try (InputStream is = new FileInputStream(xmlReport)) {
+            parse(is);
+        } catch (IOException e) {
             throw new IOException("Failed to parse "+xmlReport,e);
         }
         setParent(null);
+        freeze();
         action.getLogger().println("[CT plugin] Done.");
     }
 
+	/**
+	 * Estimates the heap this report retains, from the number of functions, the
+	 * length of their names and their lines. Used to keep loaded reports within
+	 * the budget of {@link io.jenkins.plugins.ct.CTReportCache}.
+	 *
+	 * @return rough size in bytes
+	 */
+	public long getEstimatedSize() {
+		long size = OBJECT_SIZE + sizeOf(getName());
+		for (MethodReport method : getChildren().values()) {
+			// the entry of the children map
+			size += 16 + method.estimateSize();
+		}
+		return size;
+	}
+
     /**
      * From Jacoco: Checks if a class name is anonymous or not.
      * 
@@ -171,38 +248,24 @@ public final class CoverageReport extends AggregatedReport<CoverageReport/*dummy
         return sb.toString();
     }
 
-    static final NumberFormat dataFormat = new DecimalFormat("000.00", new DecimalFormatSymbols(Locale.US));
     static final NumberFormat percentFormat = new DecimalFormat("0.0", new DecimalFormatSymbols(Locale.US));
 	
 	@Override
-	protected void printRatioCell(boolean failed, Coverage ratio, StringBuilder buf) {
-		if (ratio != null && ratio.isInitialized()) {
-			String bgColor = "#FFFFFF";
-			
-			if (CTHealthReportThresholds.RESULT.BETWEENMINMAX == healthReports.getResultByTypeAndRatio(ratio)) {
-				bgColor = "#FF8000";
-			} else if (CTHealthReportThresholds.RESULT.BELOWMINIMUM == healthReports.getResultByTypeAndRatio(ratio)) {
-				bgColor = "#FF0000";
-			}
-			buf.append("<td bgcolor='").append(bgColor).append("'");
-			buf.append(" data='").append(dataFormat.format(ratio.getPercentageFloat()));
-			buf.append("'>\n");
-			printRatioTable(ratio, buf);
-			buf.append("</td>\n");
+	protected void printRatioCell(boolean failed, CoverageElement.Type type, int missed, int covered, StringBuilder buf) {
+		String bgColor = "#FFFFFF";
+		float percentage = Coverage.getPercentageFloat(missed, covered);
+
+		CTHealthReportThresholds.RESULT result = healthReports.getResultByTypeAndPercentage(type, percentage);
+		if (CTHealthReportThresholds.RESULT.BETWEENMINMAX == result) {
+			bgColor = "#FF8000";
+		} else if (CTHealthReportThresholds.RESULT.BELOWMINIMUM == result) {
+			bgColor = "#FF0000";
 		}
-	}
-	
-	@Override
-	protected void printRatioTable(Coverage ratio, StringBuilder buf){
-		buf.append("<table class='percentgraph' cellpadding='0' cellspacing='0'><tr class='percentgraph'>")
-		.append("<td style='width:40px' class='data'>").append(ratio.getPercentage()).append("%</td>")
-		.append("<td class='percentgraph'>")
-		.append("<div class='percentgraph' style='width:100px'>")
-		.append("<div class='redbar' style='width:")
-		.append(100 - ratio.getPercentage()).append("px'>")
-		.append("</div></div></td></tr><tr><td colspan='2'>")
-		.append("<span class='text'><b>M:</b> ").append(ratio.getMissed())
-		.append(" <b>C:</b> ").append(ratio.getCovered()).append("</span></td></tr></table>\n");
+		buf.append("<td bgcolor='").append(bgColor).append("'");
+		buf.append(" data='").append(formatData(percentage));
+		buf.append("'>\n");
+		printRatioTable(missed, covered, buf);
+		buf.append("</td>\n");
 	}
 
 	@Override
@@ -217,9 +280,108 @@ public final class CoverageReport extends AggregatedReport<CoverageReport/*dummy
 
 	@Override
 	public Run<?,?> getBuild() {
-		return action.getOwner();
+		return action == null ? null : action.getOwner();
+	}
+
+	/**
+	 * The totals of a report are those of its build, so the graph is the build's,
+	 * without loading the reports of earlier builds.
+	 */
+	@Override
+	protected CoverageObject<?> getTrendHead() {
+		return action != null ? action.getTrendHead() : this;
 	}
 
+    /**
+     * @return the coverage changes since the previous build, served under {@code changes/}
+     */
+    public CTCoverageChanges getChanges() {
+        return action != null ? action.getChanges() : null;
+    }
+
+    /**
+     * @return whether pages were rendered when the build was published, see {@link CTBuildAction#getHtml()}
+     */
+    public boolean hasStaticHtml() {
+        return action != null && action.hasStaticHtml();
+    }
+
+    /**
+     * Serves one page of the breakdown table as JSON, see {@code pagedBreakdownTable.jelly}.
+     * <p>
+     * Parameters: {@code sort} (one of {@code name}, {@code statement}, {@code branch},
+     * {@code mcdc}, {@code call} and {@code missed}), {@code order} ({@code asc} or {@code desc}),
+     * {@code filter} (part of the function name), {@code offset} and {@code limit}.
+     * @param req Stapler request
+     * @param rsp Stapler response
+     * @throws IOException if any I/O error occurs
+     */
+    @SuppressWarnings({"lgtm[jenkins/no-permission-check]", "lgtm[jenkins/csrf]"})
+    public void doBreakdown(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        BreakdownIndex.Sort sort = BreakdownIndex.Sort.parse(req.getParameter("sort"));
+        boolean descending = "desc".equalsIgnoreCase(req.getParameter("order"));
+        String filter = Util.fixEmptyAndTrim(req.getParameter("filter"));
+        int offset = Math.max(0, parseInt(req.getParameter("offset"), 0));
+        int limit = Math.min(MAX_PAGE_SIZE, Math.max(1, parseInt(req.getParameter("limit"), PAGE_SIZE)));
+
+        BreakdownIndex index = getBreakdownIndex();
+        BreakdownIndex.Page page = index.query(sort, descending, filter, offset, limit);
+        JSONArray rows = new JSONArray();
+        for (MethodReport method : page.rows) {
+            JSONObject row = new JSONObject()
+                    .element("name", method.getName())
+                    .element("failed", method.isFailed());
+            for (CoverageElement.Type type : BREAKDOWN_COLUMNS) {
+                if (method.hasCoverage(type)) {
+                    int missed = method.getMissed(type);
+                    int covered = method.getCovered(type);
+                    row.element(type.name().toLowerCase(Locale.ENGLISH), new JSONObject()
+                            .element("missed", missed)
+                            .element("covered", covered)
+                            .element("percentage", Coverage.getPercentageFloat(missed, covered)));
+                }
+            }
+            rows.element(row);
+        }
+        JSONObject json = new JSONObject()
+                .element("total", index.size())
+                .element("matches", page.matches)
+                .element("offset", offset)
+                .element("limit", limit)
+                .element("rows", rows);
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print(json.toString());
+    }
+
+    private static final CoverageElement.Type[] BREAKDOWN_COLUMNS = {
+            CoverageElement.Type.STATEMENT, CoverageElement.Type.BRANCH,
+            CoverageElement.Type.MCDC, CoverageElement.Type.CALL};
+
+    /**
+     * Default rows per page of the breakdown table.
+     */
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static int parseInt(String s, int defaultValue) {
+        try {
+            return s == null ? defaultValue : Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return the sort index of the current children, built on first use
+     */
+    BreakdownIndex getBreakdownIndex() {
+        BreakdownIndex index = breakdown;
+        if (index == null || !index.isOf(getChildren())) {
+            breakdown = index = new BreakdownIndex(getChildren());
+        }
+        return index;
+    }
+
     /**
      * Serves a single jacoco.exec file that merges all that have been recorded.
      * @return HTTP response serving a single jacoco.exec file, or error 404 if nothing has been recorded. 
@@ -234,14 +396,23 @@ public final class CoverageReport extends AggregatedReport<CoverageReport/*dummy
         case 0:
             return HttpResponses.error(404, "No jacoco.exec file recorded");
         case 1:
-            return HttpResponses.staticResource(files.get(0));
+            return new HttpResponse() {
+                public void generateResponse(StaplerRequest req, StaplerResponse rsp, Object node) throws IOException, ServletException {
+                    rsp.setContentType("application/xml");
+                    try (InputStream is = CTReportDir.open(files.get(0))) {
+                        is.transferTo(rsp.getOutputStream());
+                    }
+                }
+            };
         default:
             // TODO: perhaps we want to cache the merged result?
             return new HttpResponse() {
                 public void generateResponse(StaplerRequest req, StaplerResponse rsp, Object node) throws IOException, ServletException {
                     ExecFileLoader loader = new ExecFileLoader();
                     for (File exec : files) {
-                        loader.load(exec);
+                        try (InputStream is = CTReportDir.open(exec)) {
+                            loader.load(is);
+                        }
                     }
                     rsp.setContentType("application/octet-stream");
                     final ExecutionDataWriter dataWriter = new ExecutionDataWriter(rsp.getOutputStream());
@@ -252,6 +423,26 @@ public final class CoverageReport extends AggregatedReport<CoverageReport/*dummy
         }
     }
     
+    /**
+     * Parses one XML report into this tree.
+     * <p>
+     * Uses {@link CoverageReportParser} unless the system property
+     * {@code io.jenkins.plugins.ct.report.CoverageReport.DIGESTER} is set,
+     * in which case the former Commons Digester rules are used instead.
+     */
+    private void parse(InputStream is) throws IOException {
+        boolean secure = !Boolean.getBoolean(this.getClass().getName() + ".UNSAFE");
+        if (Boolean.getBoolean(this.getClass().getName() + ".DIGESTER")) {
+            try {
+                createDigester(secure).parse(is);
+            } catch (SAXException e) {
+                throw new IOException("Failed to parse XML",e);
+            }
+        } else {
+            new CoverageReportParser(secure).parse(this, is);
+        }
+    }
+
     @SuppressWarnings("lgtm[jenkins/unsafe-classes]")
     private Digester createDigester(boolean secure) throws SAXException {
         Digester digester = new Digester();
@@ -301,14 +492,8 @@ public final class CoverageReport extends AggregatedReport<CoverageReport/*dummy
 	@SuppressWarnings({"lgtm[jenkins/no-permission-check]", "lgtm[jenkins/csrf]"})
     @Override
     public void add(MethodReport child) {
-    	MethodCoverageImpl coverageInfo = new MethodCoverageImpl(child.getName(), child.getDesc(), child.getDisplayName());
-    	
-    	for (var line : child.getChildren().values()) {
-    		coverageInfo.increment(CounterImpl.getInstance(line.getMs(), line.getCs()), CounterImpl.getInstance(line.getMb(), line.getCb()), line.getNr());
-    	}
-    	coverageInfo.incrementMethodCounter();
-    	child.setSrcFileInfo(coverageInfo);
-        this.getChildren().put(child.getName(), child);
+    	child.finishLines();
+        put(child.getName(), child);
         //logger.log(Level.INFO, "PackageReport");
     }
 
@@ -0,0 +1,292 @@
+package io.jenkins.plugins.ct.report;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import io.jenkins.plugins.ct.model.Coverage;
+import io.jenkins.plugins.ct.model.CoverageElement;
+
+/**
+ * Hand-written pull parser for the CT coverage XML export.
+ * <p>
+ * Produces the same tree as the Commons Digester rules in {@link CoverageReport},
+ * but fills {@link MethodReport} and its {@link LineTable} directly instead of
+ * resolving every attribute through reflection. {@link #readSummary} and
+ * {@link #readSources} only look at the report level counters or the source file
+ * names, and keep nothing else in memory.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class CoverageReportParser {
+
+    private final XMLInputFactory factory;
+    private final boolean secure;
+    private final boolean intern;
+
+    /**
+     * @param secure
+     *      if true, DOCTYPE declarations and external entities are rejected,
+     *      just like the hardened digester.
+     */
+    public CoverageReportParser(boolean secure) {
+        this(secure, true);
+    }
+
+    /**
+     * @param secure see {@link #CoverageReportParser(boolean)}
+     * @param intern
+     *      if true, equal strings of one report, e.g. the source files of its
+     *      functions, share one instance, see {@link StringPool}.
+     */
+    CoverageReportParser(boolean secure, boolean intern) {
+        this.secure = secure;
+        this.intern = intern;
+        this.factory = XMLInputFactory.newFactory();
+        if (secure) {
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        }
+    }
+
+    /**
+     * Parses one XML report and adds its functions to the given report.
+     * Report level counters are applied to the report itself.
+     *
+     * @param report the report to fill
+     * @param is the XML report, not closed by this method
+     * @throws IOException if the stream cannot be read or is not a valid report
+     */
+    void parse(CoverageReport report, InputStream is) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(is);
+            StringPool pool = intern ? new StringPool() : null;
+            MethodReport method = null;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case XMLStreamConstants.DTD:
+                    if (secure) {
+                        throw new IOException("Failed to parse XML: DOCTYPE is not allowed");
+                    }
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    switch (reader.getLocalName()) {
+                    case "method":
+                        method = readMethod(reader, pool);
+                        break;
+                    case "line":
+                        if (method != null) {
+                            readLine(reader, method);
+                        }
+                        break;
+                    case "counter":
+                        readCounter(reader).addTo(method != null ? method : report);
+                        break;
+                    default:
+                        break;
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (method != null && "method".equals(reader.getLocalName())) {
+                        report.add(method);
+                        method = null;
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            throw new IOException("Failed to parse XML", e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    /**
+     * Streams over one XML report and adds its report level counters, i.e. the
+     * {@code counter} elements directly below the root element, to {@code ratios}.
+     * Function level counters are skipped, so memory use does not depend on
+     * the size of the report.
+     *
+     * @param is the XML report, not closed by this method
+     * @param ratios the totals to add to; missing types are created
+     * @throws IOException if the stream cannot be read or is not a valid report
+     */
+    public void readSummary(InputStream is, Map<CoverageElement.Type, Coverage> ratios) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(is);
+            int depth = 0;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case XMLStreamConstants.DTD:
+                    if (secure) {
+                        throw new IOException("Failed to parse XML: DOCTYPE is not allowed");
+                    }
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    if (depth == 2 && "counter".equals(reader.getLocalName())) {
+                        String type = reader.getAttributeValue(null, "type");
+                        String missed = reader.getAttributeValue(null, "missed");
+                        String covered = reader.getAttributeValue(null, "covered");
+                        if (type == null) {
+                            throw new IOException("Failed to parse XML: counter without type");
+                        }
+                        ratios.computeIfAbsent(CoverageElement.Type.valueOf(type), t -> new Coverage())
+                                .accumulatePP(toInt(missed), toInt(covered));
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                default:
+                    break;
+                }
+            }
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            throw new IOException("Failed to parse XML", e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    /**
+     * Streams over one XML report and collects the {@code source} attribute of
+     * every {@code method} element.
+     *
+     * @param is the XML report, not closed by this method
+     * @param sources the set to add the source file names to
+     * @throws IOException if the stream cannot be read or is not a valid report
+     */
+    public void readSources(InputStream is, Set<String> sources) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(is);
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case XMLStreamConstants.DTD:
+                    if (secure) {
+                        throw new IOException("Failed to parse XML: DOCTYPE is not allowed");
+                    }
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    if ("method".equals(reader.getLocalName())) {
+                        String source = reader.getAttributeValue(null, "source");
+                        if (source != null && !source.isEmpty()) {
+                            sources.add(source);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse XML", e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private static int toInt(String value) {
+        return value == null ? 0 : Integer.parseInt(value.trim());
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // nothing left to release
+            }
+        }
+    }
+
+    private static MethodReport readMethod(XMLStreamReader reader, StringPool pool) {
+        MethodReport method = new MethodReport();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String value = reader.getAttributeValue(i);
+            if (pool != null) {
+                value = pool.intern(value);
+            }
+            switch (reader.getAttributeLocalName(i)) {
+            case "name":
+                method.setName(value);
+                break;
+            case "desc":
+                method.setDesc(value);
+                break;
+            case "line":
+                method.setLine(value);
+                break;
+            case "source":
+                method.setSource(value);
+                break;
+            default:
+                break;
+            }
+        }
+        return method;
+    }
+
+    private static void readLine(XMLStreamReader reader, MethodReport method) {
+        int nr = 0;
+        int ms = 0;
+        int cs = 0;
+        int mb = 0;
+        int cb = 0;
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            // other attributes are ignored, like the digester's addSetProperties did
+            switch (reader.getAttributeLocalName(i)) {
+            case "nr":
+                nr = toInt(reader.getAttributeValue(i));
+                break;
+            case "ms":
+                ms = toInt(reader.getAttributeValue(i));
+                break;
+            case "cs":
+                cs = toInt(reader.getAttributeValue(i));
+                break;
+            case "mb":
+                mb = toInt(reader.getAttributeValue(i));
+                break;
+            case "cb":
+                cb = toInt(reader.getAttributeValue(i));
+                break;
+            default:
+                break;
+            }
+        }
+        method.addLine(nr, ms, cs, mb, cb);
+    }
+
+    private static CoverageElement readCounter(XMLStreamReader reader) {
+        CoverageElement counter = new CoverageElement();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String value = reader.getAttributeValue(i);
+            switch (reader.getAttributeLocalName(i)) {
+            case "type":
+                counter.setType(value);
+                break;
+            case "missed":
+                counter.setMissed(Integer.parseInt(value.trim()));
+                break;
+            case "covered":
+                counter.setCovered(Integer.parseInt(value.trim()));
+                break;
+            default:
+                break;
+            }
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,167 @@
+package io.jenkins.plugins.ct.report;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Coverage of the lines of one function, sorted by line number.
+ * <p>
+ * A line only consists of five ints ({@code nr}, {@code ms}, {@code cs}, {@code mb},
+ * {@code cb}), so instead of a {@link SourceFileReport} per line the table stores
+ * them as primitive columns. {@link SourceFileReport}s are created as views when a
+ * page needs them and are not kept.
+ *
+ * @author Jang Hyo Jae
+ */
+abstract class LineTable {
+    static final int NR = 0;
+    static final int MS = 1;
+    static final int CS = 2;
+    static final int MB = 3;
+    static final int CB = 4;
+    static final int COLUMNS = 5;
+
+    /**
+     * @return number of lines
+     */
+    abstract int size();
+
+    /**
+     * @param column one of {@link #NR}, {@link #MS}, {@link #CS}, {@link #MB} and {@link #CB}
+     * @param index index of the line, between 0 and {@link #size()}
+     * @return the value
+     */
+    abstract int get(int column, int index);
+
+    /**
+     * @param nr line number
+     * @return index of the line, or a negative number if the function has no such line
+     */
+    int indexOf(int nr) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = get(NR, mid);
+            if (value < nr) {
+                low = mid + 1;
+            } else if (value > nr) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Creates the report of one line.
+     */
+    SourceFileReport view(MethodReport parent, int index) {
+        SourceFileReport line = new SourceFileReport();
+        line.setNr(get(NR, index));
+        line.setMs(get(MS, index));
+        line.setCs(get(CS, index));
+        line.setMb(get(MB, index));
+        line.setCb(get(CB, index));
+        line.setParent(parent);
+        return line;
+    }
+
+    /**
+     * Creates the reports of all lines, keyed like {@link MethodReport#add(SourceFileReport)}.
+     */
+    Map<String, SourceFileReport> views(MethodReport parent) {
+        Map<String, SourceFileReport> lines = new TreeMap<>();
+        for (int i = 0; i < size(); i++) {
+            lines.put(Integer.toString(get(NR, i)), view(parent, i));
+        }
+        return lines;
+    }
+
+    /**
+     * All columns in one array, column after column.
+     */
+    static final class Packed extends LineTable {
+        static final Packed EMPTY = new Packed(new int[0], 0);
+
+        private final int[] columns;
+        private final int size;
+
+        private Packed(int[] columns, int size) {
+            this.columns = columns;
+            this.size = size;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int get(int column, int index) {
+            return columns[column * size + index];
+        }
+    }
+
+    /**
+     * Collects lines in any order. Like the map of {@link MethodReport#add(SourceFileReport)},
+     * the last of several lines with the same number wins.
+     */
+    static final class Builder {
+        private int[] rows = new int[COLUMNS * 8];
+        private int size;
+        private boolean sorted = true;
+
+        void add(int nr, int ms, int cs, int mb, int cb) {
+            if (size > 0 && nr <= rows[COLUMNS * (size - 1)]) {
+                sorted = false;
+            }
+            if (COLUMNS * (size + 1) > rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            }
+            int offset = COLUMNS * size++;
+            rows[offset + NR] = nr;
+            rows[offset + MS] = ms;
+            rows[offset + CS] = cs;
+            rows[offset + MB] = mb;
+            rows[offset + CB] = cb;
+        }
+
+        Packed build() {
+            if (size == 0) {
+                return Packed.EMPTY;
+            }
+            if (sorted) {
+                // strictly increasing, the usual case
+                int[] columns = new int[COLUMNS * size];
+                for (int i = 0; i < size; i++) {
+                    for (int c = 0; c < COLUMNS; c++) {
+                        columns[c * size + i] = rows[COLUMNS * i + c];
+                    }
+                }
+                return new Packed(columns, size);
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // stable, so the last of equal line numbers stays last
+            Arrays.sort(order, (a, b) -> Integer.compare(rows[COLUMNS * a], rows[COLUMNS * b]));
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (i + 1 == size || rows[COLUMNS * order[i]] != rows[COLUMNS * order[i + 1]]) {
+                    order[count++] = order[i];
+                }
+            }
+            int[] columns = new int[COLUMNS * count];
+            for (int i = 0; i < count; i++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    columns[c * count + i] = rows[COLUMNS * order[i] + c];
+                }
+            }
+            return new Packed(columns, count);
+        }
+    }
+}
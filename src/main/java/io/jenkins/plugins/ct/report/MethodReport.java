@@ -1,11 +1,25 @@
 package io.jenkins.plugins.ct.report;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Writer;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
 
-import io.jenkins.plugins.ct.model.CoverageElement;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.model.Run;
+import io.jenkins.plugins.ct.CTMethodHistory;
+import io.jenkins.plugins.ct.CTReportDir;
+import io.jenkins.plugins.ct.CTSourceStore;
+import io.jenkins.plugins.ct.CTTrendIndex;
+import io.jenkins.plugins.ct.model.CoverageObject;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -14,29 +28,26 @@ import io.jenkins.plugins.ct.model.CoverageElement;
  */
 //AggregatedReport<PackageReport,ClassReport,MethodReport>  -  AbstractReport<ClassReport,MethodReport>
 public class MethodReport extends AggregatedReport<CoverageReport,MethodReport, SourceFileReport> {
+	private static final Logger LOGGER = Logger.getLogger(MethodReport.class.getName());
 
+	/**
+	 * Line coverage for the source view, if it was set explicitly; otherwise it is
+	 * created from the lines on every call of {@link #getSrcFileInfo()}.
+	 */
 	private IMethodCoverage methodCov;
 	private String source;
 	private String name;
 	private String desc;
 	private String line;
 
-	@Override
-	public String printFourCoverageColumns() {
-        StringBuilder buf = new StringBuilder();
-        mcdc.setType(CoverageElement.Type.MCDC);
-        branch.setType(CoverageElement.Type.BRANCH);
-        statement.setType(CoverageElement.Type.STATEMENT);
-        call.setType(CoverageElement.Type.CALL);
-        
-        printRatioCell(isFailed(), this.statement, buf);
-        printRatioCell(isFailed(), this.branch, buf);
-		printRatioCell(isFailed(), this.mcdc, buf);
-        printRatioCell(isFailed(), this.call, buf);
-        //logger.log(Level.INFO, "Printing Ratio cells within MethodReport.");
-		return buf.toString();
-	}
-	
+	/**
+	 * Lines of a method read by {@link CoverageReportParser} or restored from a
+	 * {@link ReportSnapshot}, see {@link LineTable}. Null for methods whose lines were
+	 * added as {@link SourceFileReport}s, which are kept in {@link #getChildren()} as they are.
+	 */
+	private LineTable lines;
+	private LineTable.Builder pendingLines;
+
 	public String getSource() {
 		return source;
 	}
@@ -61,9 +72,91 @@ public class MethodReport extends AggregatedReport<CoverageReport,MethodReport,
 		this.line = line;
 	}
 
+	void setLines(LineTable lines) {
+		this.lines = lines;
+		this.pendingLines = null;
+	}
+
+	/**
+	 * Adds a line without creating its report; {@link #finishLines()} or {@link #getLines()} completes the table.
+	 */
+	void addLine(int nr, int ms, int cs, int mb, int cb) {
+		if (pendingLines == null) {
+			pendingLines = new LineTable.Builder();
+		}
+		pendingLines.add(nr, ms, cs, mb, cb);
+	}
+
+	/**
+	 * Turns the lines added by {@link #addLine(int, int, int, int, int)} into the final table.
+	 */
+	void finishLines() {
+		if (pendingLines != null) {
+			setLines(pendingLines.build());
+		}
+	}
+
+	/**
+	 * @return rough number of bytes this method keeps on the heap, with its lines
+	 */
+	long estimateSize() {
+		long size = OBJECT_SIZE + sizeOf(getName()) + sizeOf(source) + sizeOf(desc) + sizeOf(line);
+		if (lines != null || pendingLines != null) {
+			return size + 32 + 4L * LineTable.COLUMNS * getLines().size();
+		}
+		for (SourceFileReport child : super.getChildren().values()) {
+			size += OBJECT_SIZE + 48 + sizeOf(child.getName());
+		}
+		return size;
+	}
+
+	/**
+	 * @return the lines of this method, sorted by line number
+	 */
+	LineTable getLines() {
+		if (pendingLines != null) {
+			setLines(pendingLines.build());
+		}
+		if (lines != null) {
+			return lines;
+		}
+		LineTable.Builder builder = new LineTable.Builder();
+		for (SourceFileReport line : super.getChildren().values()) {
+			builder.add(line.getNr(), line.getMs(), line.getCs(), line.getMb(), line.getCb());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * For a method with a {@link LineTable}, the line reports are created on every call.
+	 */
+	@Override
+	public Map<String, SourceFileReport> getChildren() {
+		return lines != null || pendingLines != null ? getLines().views(this) : super.getChildren();
+	}
+
+	@Override
+	public SourceFileReport getDynamic(String token, StaplerRequest req, StaplerResponse rsp) throws IOException {
+		if (lines == null && pendingLines == null) {
+			return super.getDynamic(token, req, rsp);
+		}
+		try {
+			LineTable table = getLines();
+			int index = table.indexOf(Integer.parseInt(token));
+			return index >= 0 ? table.view(this, index) : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public boolean hasChildren() {
+		return lines != null || pendingLines != null ? getLines().size() > 0 : super.hasChildren();
+	}
+
 	@Override
 	public void add(SourceFileReport child) {
-		getChildren().put(Integer.toString(child.getNr()), child);
+		put(Integer.toString(child.getNr()), child);
         //logger.log(Level.INFO, "SourceFileReport");
     }
 
@@ -76,7 +169,65 @@ public class MethodReport extends AggregatedReport<CoverageReport,MethodReport,
 		this.methodCov = methodCov;
 	}
 
+	/**
+	 * Line coverage in the form {@link SourceAnnotator} needs. Unless it was set with
+	 * {@link #setSrcFileInfo(IMethodCoverage)}, it is created from the lines of this
+	 * method and not kept, since only the source view of a single function uses it.
+	 * @return the line coverage of this method
+	 */
+	public IMethodCoverage getSrcFileInfo() {
+		if (methodCov != null) {
+			return methodCov;
+		}
+		MethodCoverageImpl coverageInfo = new MethodCoverageImpl(getName(), getDesc(), getDisplayName());
+		LineTable lines = getLines();
+		for (int i = 0; i < lines.size(); i++) {
+			coverageInfo.increment(CounterImpl.getInstance(lines.get(LineTable.MS, i), lines.get(LineTable.CS, i)),
+					CounterImpl.getInstance(lines.get(LineTable.MB, i), lines.get(LineTable.CB, i)), lines.get(LineTable.NR, i));
+		}
+		coverageInfo.incrementMethodCounter();
+		return coverageInfo;
+	}
+
+	/**
+	 * The graph of a function reads its earlier builds from the {@link CTMethodHistory}
+	 * of the job instead of loading their reports. If the history cannot be read, the
+	 * graph shows this build only.
+	 */
+	@Override
+	protected CoverageObject<?> getTrendHead() {
+		Run<?, ?> build = getBuild();
+		if (build == null) {
+			return this;
+		}
+		try {
+			return CTMethodHistory.of(build.getParent()).getTrendHead(build, this);
+		} catch (IOException e) {
+			// walking the reports of the earlier builds instead would load every one of them
+			LOGGER.log(Level.WARNING, "Failed to read the function history of " + build, e);
+			return CTTrendIndex.point(build, this);
+		}
+	}
+
     public void printHighlightedSrcFile(Writer output) {
-    	new SourceAnnotator(new File(this.source)).printHighlightedSrcFile(methodCov,output);
+    	new SourceAnnotator(getSourceFile()).printHighlightedSrcFile(getSrcFileInfo(),output);
    	}
+
+	/**
+	 * The report names the source file as it was on the agent. Unless that path exists
+	 * here as well, the copy archived in the job's {@link CTSourceStore} is used.
+	 */
+	private File getSourceFile() {
+		File file = new File(this.source);
+		Run<?, ?> build = getBuild();
+		if (file.isFile() || build == null) {
+			return file;
+		}
+		try {
+			File archived = new CTSourceStore(build.getParent().getRootDir()).resolve(new CTReportDir(build.getRootDir()), source);
+			return archived != null ? archived : file;
+		} catch (IOException e) {
+			return file;
+		}
+	}
 }
@@ -0,0 +1,324 @@
+package io.jenkins.plugins.ct.report;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.jenkins.plugins.ct.model.CoverageElement;
+
+/**
+ * Compact binary form of a parsed {@link CoverageReport}.
+ * <p>
+ * The file starts with a magic number and a format version, followed by the
+ * report level counters, a pool of distinct strings, the method table and the
+ * line columns ({@code nr}, {@code ms}, {@code cs}, {@code mb}, {@code cb}) of all
+ * methods, each stored as one contiguous int array:
+ * <pre>
+ * int magic, int version
+ * counters                                  (report level)
+ * int n, n * (int length, byte[length])     (UTF-8 string pool)
+ * int m, m * (int name, int desc, int line, int source, counters, int firstLine, int lineCount)
+ * int l, int[l] nr, int[l] ms, int[l] cs, int[l] mb, int[l] cb
+ * </pre>
+ * where {@code counters} is an int mask of the initialized {@link CoverageElement.Type}s
+ * followed by a missed and covered int for each type, and string references are
+ * indexes into the pool, -1 standing for null.
+ * <p>
+ * {@link #open(File)} maps the file into memory. Method reports are created
+ * up front, while their {@link LineTable}s read the mapped line columns.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class ReportSnapshot {
+    private static final int MAGIC = 0x43545253; // "CTRS"
+
+    /**
+     * Format version, to be incremented with every incompatible change.
+     * Snapshots of another version are rejected by {@link #open(File)}.
+     */
+    public static final int VERSION = 1;
+
+    private static final CoverageElement.Type[] TYPES = CoverageElement.Type.values();
+    private static final int COUNTERS_SIZE = 4 * (1 + 2 * TYPES.length);
+    private static final int METHOD_ENTRY_SIZE = 4 * 4 + COUNTERS_SIZE + 2 * 4;
+
+    private final ByteBuffer buffer;
+    private final String[] strings;
+    private final int methodTable;
+    private final int methodCount;
+    private final int lineCount;
+    private final int lineColumns;
+
+    private ReportSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a coverage snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported coverage snapshot version " + version);
+            }
+            skipCounters();
+            // the sizes are checked against the data left before anything is allocated,
+            // snapshots may come from an agent
+            strings = new String[count(4)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[count(1)];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            methodCount = count(METHOD_ENTRY_SIZE);
+            methodTable = buffer.position();
+            buffer.position(methodTable + methodCount * METHOD_ENTRY_SIZE);
+            lineCount = count(5 * 4);
+            lineColumns = buffer.position();
+            checkMethods();
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt coverage snapshot", e);
+        }
+    }
+
+    /**
+     * Reads the number of following items.
+     *
+     * @param itemSize minimum size of one item, in bytes
+     * @return the number of items
+     * @throws IOException if they do not fit into the rest of the data
+     */
+    private int count(int itemSize) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / itemSize) {
+            throw new IOException("Truncated coverage snapshot");
+        }
+        return count;
+    }
+
+    /**
+     * Checks that the methods refer to strings and lines of the snapshot.
+     */
+    private void checkMethods() throws IOException {
+        for (int m = 0; m < methodCount; m++) {
+            int entry = methodTable + m * METHOD_ENTRY_SIZE;
+            for (int s = 0; s < 4; s++) {
+                int index = buffer.getInt(entry + 4 * s);
+                // every method has a name, the other strings may be null
+                if (index < (s == 0 ? 0 : -1) || index >= strings.length) {
+                    throw new IOException("Corrupt coverage snapshot");
+                }
+            }
+            int first = buffer.getInt(entry + 16 + COUNTERS_SIZE);
+            int count = buffer.getInt(entry + 20 + COUNTERS_SIZE);
+            if (first < 0 || count < 0 || (long) first + count > lineCount) {
+                throw new IOException("Corrupt coverage snapshot");
+            }
+        }
+    }
+
+    /**
+     * Maps a snapshot file into memory.
+     *
+     * @param file the snapshot written by {@link #write(CoverageReport, File)}
+     * @return the snapshot
+     * @throws IOException if the file cannot be read, is corrupt or of another format version
+     */
+    public static ReportSnapshot open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new ReportSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads a snapshot held in memory, e.g. one received from an agent.
+     *
+     * @param bytes the snapshot written by {@link #write(CoverageReport, OutputStream)}
+     * @return the snapshot
+     * @throws IOException if the data is corrupt or of another format version
+     */
+    public static ReportSnapshot read(byte[] bytes) throws IOException {
+        return new ReportSnapshot(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Fills an empty report with the counters and methods of this snapshot.
+     */
+    void fill(CoverageReport report) {
+        readCounters(buffer, 8, report);
+        for (int m = 0; m < methodCount; m++) {
+            int entry = methodTable + m * METHOD_ENTRY_SIZE;
+            MethodReport method = new MethodReport();
+            method.setName(string(buffer.getInt(entry)));
+            method.setDesc(string(buffer.getInt(entry + 4)));
+            method.setLine(string(buffer.getInt(entry + 8)));
+            method.setSource(string(buffer.getInt(entry + 12)));
+            readCounters(buffer, entry + 16, method);
+            int first = buffer.getInt(entry + 16 + COUNTERS_SIZE);
+            int count = buffer.getInt(entry + 20 + COUNTERS_SIZE);
+            method.setLines(new Lines(first, count));
+            report.put(method.getName(), method);
+        }
+    }
+
+    private int column(int column, int index) {
+        return buffer.getInt(lineColumns + 4 * (column * lineCount + index));
+    }
+
+    /**
+     * The lines of one method, read from the snapshot whenever they are needed.
+     */
+    private final class Lines extends LineTable {
+        private final int first;
+        private final int count;
+
+        Lines(int first, int count) {
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        int size() {
+            return count;
+        }
+
+        @Override
+        int get(int column, int index) {
+            return column(column, first + index);
+        }
+    }
+
+    private String string(int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    private void skipCounters() {
+        buffer.position(buffer.position() + COUNTERS_SIZE);
+    }
+
+    private static void readCounters(ByteBuffer buffer, int offset, AbstractReport<?, ?> report) {
+        int mask = buffer.getInt(offset);
+        for (int t = 0; t < TYPES.length; t++) {
+            if ((mask & (1 << t)) != 0) {
+                report.setCounter(TYPES[t], buffer.getInt(offset + 4 + 8 * t), buffer.getInt(offset + 8 + 8 * t));
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot of a report to a file. The file is replaced atomically,
+     * so concurrent readers never see a partial snapshot.
+     *
+     * @param report the report to save
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(CoverageReport report, File file) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+            write(report, out);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the snapshot of a report to a stream.
+     *
+     * @param report the report to save
+     * @param output the stream to write to, not closed by this method
+     * @throws IOException if the stream cannot be written
+     */
+    public static void write(CoverageReport report, OutputStream output) throws IOException {
+        Map<String, Integer> pool = new LinkedHashMap<>();
+        List<MethodReport> methods = new ArrayList<>(report.getChildren().values());
+        List<LineTable> tables = new ArrayList<>(methods.size());
+        int lineTotal = 0;
+        for (MethodReport method : methods) {
+            intern(pool, method.getName());
+            intern(pool, method.getDesc());
+            intern(pool, method.getLine());
+            intern(pool, method.getSource());
+            LineTable lines = method.getLines();
+            tables.add(lines);
+            lineTotal += lines.size();
+        }
+
+        int[][] columns = new int[LineTable.COLUMNS][lineTotal];
+        int[] first = new int[methods.size()];
+        int next = 0;
+        for (int m = 0; m < methods.size(); m++) {
+            first[m] = next;
+            LineTable lines = tables.get(m);
+            for (int i = 0; i < lines.size(); i++) {
+                for (int c = 0; c < LineTable.COLUMNS; c++) {
+                    columns[c][next] = lines.get(c, i);
+                }
+                next++;
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeCounters(out, report);
+        out.writeInt(pool.size());
+        for (String s : pool.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(methods.size());
+        for (int m = 0; m < methods.size(); m++) {
+            MethodReport method = methods.get(m);
+            out.writeInt(index(pool, method.getName()));
+            out.writeInt(index(pool, method.getDesc()));
+            out.writeInt(index(pool, method.getLine()));
+            out.writeInt(index(pool, method.getSource()));
+            writeCounters(out, method);
+            out.writeInt(first[m]);
+            out.writeInt((m + 1 < methods.size() ? first[m + 1] : lineTotal) - first[m]);
+        }
+        out.writeInt(lineTotal);
+        for (int[] column : columns) {
+            for (int value : column) {
+                out.writeInt(value);
+            }
+        }
+        out.flush();
+    }
+
+    private static void intern(Map<String, Integer> pool, String s) {
+        if (s != null) {
+            pool.putIfAbsent(s, pool.size());
+        }
+    }
+
+    private static int index(Map<String, Integer> pool, String s) {
+        return s == null ? -1 : pool.get(s);
+    }
+
+    private static void writeCounters(DataOutputStream out, AbstractReport<?, ?> report) throws IOException {
+        int mask = 0;
+        for (int t = 0; t < TYPES.length; t++) {
+            if (report.hasCoverage(TYPES[t])) {
+                mask |= 1 << t;
+            }
+        }
+        out.writeInt(mask);
+        for (CoverageElement.Type type : TYPES) {
+            out.writeInt(report.getMissed(type));
+            out.writeInt(report.getCovered(type));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.jenkins.plugins.ct.report;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only map of the children of a loaded report, see {@link AggregatedReport#freeze()}.
+ * <p>
+ * Keys and values are kept in two arrays in the order of the {@link java.util.TreeMap}
+ * they were copied from; {@link #get(Object)} is a binary search over the keys and
+ * {@link #values()} iterates the value array. This saves the tree entry of every child,
+ * and the page and URL lookups of a report only touch two arrays.
+ *
+ * @author Jang Hyo Jae
+ * @param <V> child type
+ */
+final class SortedArrayMap<V> extends AbstractMap<String, V> {
+    private final String[] keys;
+    private final Object[] values;
+
+    /**
+     * @param sorted map whose iteration order is the natural order of its keys
+     */
+    SortedArrayMap(Map<String, ? extends V> sorted) {
+        keys = new String[sorted.size()];
+        values = new Object[sorted.size()];
+        int i = 0;
+        for (Map.Entry<String, ? extends V> e : sorted.entrySet()) {
+            keys[i] = e.getKey();
+            values[i] = e.getValue();
+            i++;
+        }
+    }
+
+    private int indexOf(Object key) {
+        return key instanceof String ? Arrays.binarySearch(keys, key) : -1;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? (V) values[i] : null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return Collections.unmodifiableList(Arrays.asList(keys)).iterator();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<V> values() {
+        return (Collection<V>) Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new Iterator<Map.Entry<String, V>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Map.Entry<String, V> next() {
+                        if (next >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(keys[i], (V) values[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,332 @@
+package io.jenkins.plugins.ct.report;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.Util;
+
+/**
+ * The pages of a {@link CoverageReport}, rendered once when the build is published
+ * and served as they are.
+ * <p>
+ * Every page is a gzip compressed HTML file. The index is split into pages of
+ * {@value #PAGE_SIZE} functions in name order; function {@code n} of that order is in
+ * {@code f<n>.html}. Each rendering gets a random id and is written to a subdirectory
+ * of that name; the {@value #ID} file names the current one and is replaced in one step
+ * at the end, so readers never see a partial or missing report. The rendering before
+ * is kept for requests that read the old id, older ones are deleted.
+ * <p>
+ * A report never changes once it is rendered, so the id of the rendering, plus the
+ * file name and encoding, is a strong {@code ETag}; a request that already has the
+ * page is answered with 304 without touching the file.
+ *
+ * @author Jang Hyo Jae
+ */
+public final class StaticReport {
+    static final int PAGE_SIZE = 500;
+    private static final String ID = "render.id";
+    private static final Pattern NAME = Pattern.compile("[a-z0-9-]+\\.html");
+    private static final Pattern RENDER_ID = Pattern.compile("[0-9a-f-]+");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int PARALLELISM = Math.max(1, Integer.getInteger(StaticReport.class.getName() + ".parallelism",
+            Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM);
+
+    private static final String STYLE = "<style>"
+            + "body{font-family:sans-serif;font-size:13px}"
+            + "table.pane{border-collapse:collapse}"
+            + "table.pane th{background-color:#e0e0e0}"
+            + ".nowrap{white-space:nowrap}.red{background-color:red}"
+            + "div.percentgraph{background-color:#80ff80;height:1.3em}"
+            + "div.percentgraph div.redbar{background-color:#ff9090;height:1.3em}"
+            + "table.percentgraph{border:0;margin:0;padding:0;text-align:left}"
+            + "table.percentgraph td.percentgraph{border:0;padding:0 0 0 4px}"
+            + "table.percentgraph td.data{padding-top:3px;text-align:right}"
+            + "</style>";
+
+    private final File pages;
+    private final String id;
+
+    /**
+     * Opens the current rendering. The instance keeps serving that rendering, so it
+     * should not be kept across requests.
+     *
+     * @param dir the directory the report was rendered to
+     * @throws IOException if the report was not rendered or cannot be read
+     */
+    public StaticReport(File dir) throws IOException {
+        this.id = currentId(dir);
+        if (id == null) {
+            throw new IOException("No static report in " + dir);
+        }
+        this.pages = new File(dir, id);
+    }
+
+    /**
+     * @param dir the directory the report is rendered to
+     * @return whether a rendering is there
+     */
+    public static boolean exists(File dir) {
+        return new File(dir, ID).isFile();
+    }
+
+    private static String currentId(File dir) throws IOException {
+        File file = new File(dir, ID);
+        if (!file.isFile()) {
+            return null;
+        }
+        String id = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim();
+        if (!RENDER_ID.matcher(id).matches()) {
+            throw new IOException("Corrupt " + file);
+        }
+        return id;
+    }
+
+    /**
+     * @param name name of a page, e.g. {@code index.html}
+     * @return the compressed file of the page
+     */
+    File getPage(String name) {
+        return new File(pages, name + ".gz");
+    }
+
+    /**
+     * Renders all pages of a report, the function pages in parallel.
+     *
+     * @param report the loaded report
+     * @param dir target directory; the rendering in it is replaced
+     * @return number of pages
+     * @throws IOException if a page cannot be written
+     * @throws InterruptedException if interrupted while waiting for the renderer threads
+     */
+    public static int render(CoverageReport report, File dir) throws IOException, InterruptedException {
+        String previous = currentId(dir);
+        String id = UUID.randomUUID().toString();
+        File tmp = new File(dir, id);
+        Files.createDirectories(tmp.toPath());
+        int pages;
+        try {
+            pages = renderPages(report, tmp);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            Util.deleteRecursive(tmp);
+            throw e;
+        }
+
+        File pointer = new File(dir, ID + ".tmp");
+        Files.write(pointer.toPath(), id.getBytes(StandardCharsets.US_ASCII));
+        Files.move(pointer.toPath(), new File(dir, ID).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // anything else is an older rendering, or pages of the former flat layout
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                String name = f.getName();
+                if (!name.equals(ID) && !name.equals(id) && !name.equals(previous)) {
+                    Util.deleteRecursive(f);
+                }
+            }
+        }
+        return pages;
+    }
+
+    private static int renderPages(CoverageReport report, File tmp) throws IOException, InterruptedException {
+        List<MethodReport> methods = new ArrayList<>(report.getChildren().values());
+        int pages = Math.max(1, (methods.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        List<Future<Void>> tasks = new ArrayList<>(methods.size());
+        for (int i = 0; i < methods.size(); i++) {
+            final int n = i;
+            tasks.add(POOL.submit(() -> {
+                try (Writer w = open(new File(tmp, "f" + n + ".html.gz"))) {
+                    writeMethod(methods.get(n), indexName(n / PAGE_SIZE), w);
+                }
+                return null;
+            }));
+        }
+        try {
+            for (int p = 0; p < pages; p++) {
+                try (Writer w = open(new File(tmp, indexName(p) + ".gz"))) {
+                    writeIndex(report, methods, p, pages, w);
+                }
+            }
+            for (Future<Void> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            for (Future<Void> task : tasks) {
+                task.cancel(true);
+            }
+        }
+        return pages + methods.size();
+    }
+
+    private static Writer open(File file) throws IOException {
+        return new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE), StandardCharsets.UTF_8);
+    }
+
+    private static String indexName(int page) {
+        return page == 0 ? "index.html" : "index-" + (page + 1) + ".html";
+    }
+
+    private static void writeHeader(Writer w, String title) throws IOException {
+        w.write("<!DOCTYPE html>\n<html><head><meta charset=\"UTF-8\"><title>");
+        w.write(Util.escape(title));
+        w.write("</title>");
+        w.write(STYLE);
+        w.write("</head><body>\n");
+    }
+
+    private static void writeColumns(Writer w) throws IOException {
+        w.write("<tr><th>name</th><th>statement</th><th>branch</th><th>mcdc</th><th>call</th></tr>\n");
+    }
+
+    static void writeIndex(CoverageReport report, List<MethodReport> methods, int page, int pages, Writer w) throws IOException {
+        writeHeader(w, report.getDisplayName());
+        // the pages are served under html/ of the build action, whose index is the live report
+        w.write("<p><a href=\"../?live\">Live report</a></p>\n");
+        w.write("<h2>CT Coverage Report</h2>\n<h3>Overall Coverage Summary</h3>\n<table border=\"1px\" class=\"pane\">");
+        writeColumns(w);
+        w.write("<tr><td>all functions</td>");
+        w.write(report.printFourCoverageColumns());
+        w.write("</tr></table>\n<h3>Coverage Breakdown by Function</h3>\n");
+        writePager(w, page, pages);
+        w.write("<table border=\"1px\" class=\"pane\">");
+        writeColumns(w);
+        int end = Math.min(methods.size(), (page + 1) * PAGE_SIZE);
+        for (int i = page * PAGE_SIZE; i < end; i++) {
+            MethodReport method = methods.get(i);
+            w.write("<tr><td class=\"nowrap");
+            w.write(method.isFailed() ? " red\">" : "\">");
+            w.write("<a href=\"f" + i + ".html\">");
+            w.write(Util.escape(method.getName()));
+            w.write("</a></td>");
+            w.write(method.printFourCoverageColumns());
+            w.write("</tr>\n");
+        }
+        w.write("</table>\n");
+        writePager(w, page, pages);
+        w.write("</body></html>\n");
+    }
+
+    private static void writePager(Writer w, int page, int pages) throws IOException {
+        if (pages < 2) {
+            return;
+        }
+        w.write("<p>");
+        if (page > 0) {
+            w.write("<a href=\"" + indexName(page - 1) + "\">&laquo;</a> ");
+        }
+        w.write("page " + (page + 1) + " / " + pages);
+        if (page + 1 < pages) {
+            w.write(" <a href=\"" + indexName(page + 1) + "\">&raquo;</a>");
+        }
+        w.write("</p>\n");
+    }
+
+    static void writeMethod(MethodReport method, String index, Writer w) throws IOException {
+        writeHeader(w, method.getName());
+        w.write("<p><a href=\"" + index + "\">CT Coverage Report</a></p>\n<h2>Function: ");
+        w.write(Util.escape(method.getName()));
+        w.write("</h2>\n<table border=\"1px\" class=\"pane\">");
+        writeColumns(w);
+        w.write("<tr><td>");
+        w.write(Util.escape(method.getName()));
+        w.write("</td>");
+        w.write(method.printFourCoverageColumns());
+        w.write("</tr></table>\n");
+        method.printHighlightedSrcFile(w);
+        w.write("\n</body></html>\n");
+    }
+
+    /**
+     * Serves a page, compressed if the client accepts gzip.
+     * @param req Stapler request, the rest of its path is the page
+     * @param rsp Stapler response
+     * @throws IOException if any I/O error occurs
+     */
+    @SuppressWarnings({"lgtm[jenkins/no-permission-check]", "lgtm[jenkins/csrf]"})
+    public void doDynamic(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        String name = req.getRestOfPath();
+        if (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        if (name.isEmpty()) {
+            name = "index.html";
+        }
+        File file = getPage(name);
+        if (!NAME.matcher(name).matches() || !file.isFile()) {
+            rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String accept = req.getHeader("Accept-Encoding");
+        boolean gzip = accept != null && accept.contains("gzip");
+        String etag = "\"" + id + "-" + name + (gzip ? "-gz" : "") + "\"";
+        rsp.setHeader("ETag", etag);
+        rsp.setHeader("Vary", "Accept-Encoding");
+        rsp.setHeader("Cache-Control", "private, no-cache");
+        if (matches(req.getHeader("If-None-Match"), etag)) {
+            rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        rsp.setContentType("text/html;charset=UTF-8");
+        if (gzip) {
+            rsp.setHeader("Content-Encoding", "gzip");
+            rsp.setHeader("Content-Length", Long.toString(file.length()));
+        }
+        try (InputStream in = gzip ? new FileInputStream(file) : new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE);
+             OutputStream out = rsp.getOutputStream()) {
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * @param ifNoneMatch value of the {@code If-None-Match} header, may be null
+     * @param etag the current tag
+     * @return whether the header lists the tag
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
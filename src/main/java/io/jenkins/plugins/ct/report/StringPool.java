@@ -0,0 +1,30 @@
+package io.jenkins.plugins.ct.report;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interning pool for the strings of one report while it is loaded.
+ * <p>
+ * The XML parser creates a new string for every attribute, although the source
+ * file of a function is shared by all functions of that file. The pool maps equal
+ * strings to one instance; it is dropped once the report is loaded, unlike
+ * {@link String#intern()} which would keep the strings of all builds alive.
+ *
+ * @author Jang Hyo Jae
+ */
+final class StringPool {
+    private final Map<String, String> strings = new HashMap<>();
+
+    /**
+     * @param s a string, may be null
+     * @return the pooled instance equal to {@code s}
+     */
+    String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        String pooled = strings.putIfAbsent(s, s);
+        return pooled != null ? pooled : s;
+    }
+}
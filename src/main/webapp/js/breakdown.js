@@ -0,0 +1,110 @@
+/*
+ * Paged breakdown table of a CT coverage report, see pagedBreakdownTable.jelly.
+ * Only the rows of the current page are in the document.
+ */
+(function () {
+    var COLUMNS = ["statement", "branch", "mcdc", "call"];
+
+    function ratioCell(ratio) {
+        var td = document.createElement("td");
+        if (!ratio) {
+            return td;
+        }
+        var percentage = Math.round(ratio.percentage);
+        td.setAttribute("bgcolor", "#FFFFFF");
+        td.setAttribute("data", ratio.percentage.toFixed(2));
+        td.innerHTML = "<table class='percentgraph' cellpadding='0' cellspacing='0'><tr class='percentgraph'>"
+            + "<td style='width:40px' class='data'>" + percentage + "%</td>"
+            + "<td class='percentgraph'><div class='percentgraph' style='width:100px'>"
+            + "<div class='redbar' style='width:" + (100 - percentage) + "px'></div></div></td></tr>"
+            + "<tr><td colspan='2'><span class='text'><b>M:</b> " + ratio.missed
+            + " <b>C:</b> " + ratio.covered + "</span></td></tr></table>";
+        return td;
+    }
+
+    function init(root) {
+        var state = {sort: "name", order: "asc", filter: "", offset: 0, matches: 0};
+        var pageSize = 100;
+        var rows = root.querySelector(".ct-breakdown-rows");
+        var range = root.querySelector(".ct-breakdown-range");
+        var prev = root.querySelector(".ct-breakdown-prev");
+        var next = root.querySelector(".ct-breakdown-next");
+        var filter = root.querySelector(".ct-breakdown-filter");
+        var request = 0;
+
+        function render(page) {
+            rows.innerHTML = "";
+            page.rows.forEach(function (row) {
+                var tr = document.createElement("tr");
+                var name = document.createElement("td");
+                name.className = row.failed ? "nowrap red" : "nowrap";
+                var a = document.createElement("a");
+                a.href = encodeURIComponent(row.name) + "/";
+                a.textContent = row.name;
+                name.appendChild(a);
+                tr.appendChild(name);
+                COLUMNS.forEach(function (column) {
+                    tr.appendChild(ratioCell(row[column]));
+                });
+                var missed = document.createElement("td");
+                missed.textContent = row.statement ? row.statement.missed : "";
+                tr.appendChild(missed);
+                rows.appendChild(tr);
+            });
+            state.matches = page.matches;
+            range.textContent = page.matches === 0 ? root.getAttribute("data-empty")
+                : (page.offset + 1) + "-" + (page.offset + page.rows.length) + " " + root.getAttribute("data-of") + " " + page.matches;
+            prev.disabled = state.offset === 0;
+            next.disabled = state.offset + pageSize >= page.matches;
+        }
+
+        function load() {
+            var id = ++request;
+            var url = root.getAttribute("data-url")
+                + "?sort=" + state.sort + "&order=" + state.order
+                + "&offset=" + state.offset + "&limit=" + pageSize
+                + "&filter=" + encodeURIComponent(state.filter);
+            fetch(url, {credentials: "same-origin"})
+                .then(function (rsp) { return rsp.json(); })
+                .then(function (page) {
+                    // drop responses that were overtaken by a later request
+                    if (id === request) {
+                        render(page);
+                    }
+                });
+        }
+
+        prev.addEventListener("click", function () {
+            state.offset = Math.max(0, state.offset - pageSize);
+            load();
+        });
+        next.addEventListener("click", function () {
+            state.offset += pageSize;
+            load();
+        });
+        var timer;
+        filter.addEventListener("input", function () {
+            clearTimeout(timer);
+            timer = setTimeout(function () {
+                state.filter = filter.value;
+                state.offset = 0;
+                load();
+            }, 250);
+        });
+        Array.prototype.forEach.call(root.querySelectorAll(".ct-breakdown-sort"), function (th) {
+            th.style.cursor = "pointer";
+            th.addEventListener("click", function () {
+                var sort = th.getAttribute("data-sort");
+                state.order = state.sort === sort && state.order === "asc" ? "desc" : "asc";
+                state.sort = sort;
+                state.offset = 0;
+                load();
+            });
+        });
+        load();
+    }
+
+    document.addEventListener("DOMContentLoaded", function () {
+        Array.prototype.forEach.call(document.querySelectorAll(".ct-breakdown"), init);
+    });
+})();
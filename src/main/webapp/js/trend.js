@@ -0,0 +1,137 @@
+/*
+ * Coverage trend chart of a CT coverage report, see trendChart.jelly.
+ * Drawn as SVG from the JSON of CoverageObject#doTrend.
+ */
+(function () {
+    var SVG = "http://www.w3.org/2000/svg";
+    // the colors of the server side graph, see CoverageObject#doGraph
+    var SERIES = [
+        {key: "statement", color: "#00c000"},
+        {key: "mcdc", color: "#404040"},
+        {key: "call", color: "#0000ff"},
+        {key: "branch", color: "#ff0000"}
+    ];
+    var MARGIN = {top: 10, right: 10, bottom: 20, left: 35};
+
+    function element(name, attributes, parent) {
+        var e = document.createElementNS(SVG, name);
+        for (var a in attributes) {
+            if (attributes.hasOwnProperty(a)) {
+                e.setAttribute(a, attributes[a]);
+            }
+        }
+        if (parent) {
+            parent.appendChild(e);
+        }
+        return e;
+    }
+
+    function text(value, attributes, parent) {
+        var t = element("text", attributes, parent);
+        t.textContent = value;
+        return t;
+    }
+
+    function draw(root, builds, width, height) {
+        root.innerHTML = "";
+        if (builds.length === 0) {
+            root.textContent = root.getAttribute("data-empty");
+            return;
+        }
+        var plotWidth = width - MARGIN.left - MARGIN.right;
+        var plotHeight = height - MARGIN.top - MARGIN.bottom;
+        var step = builds.length > 1 ? plotWidth / (builds.length - 1) : 0;
+
+        function x(i) {
+            return MARGIN.left + (builds.length > 1 ? i * step : plotWidth / 2);
+        }
+
+        function y(percentage) {
+            return MARGIN.top + plotHeight * (1 - percentage / 100);
+        }
+
+        var svg = element("svg", {width: width, height: height, "class": "ct-trend-chart"}, root);
+        for (var p = 0; p <= 100; p += 25) {
+            element("line", {x1: MARGIN.left, x2: width - MARGIN.right, y1: y(p), y2: y(p), stroke: "#d0d0d0"}, svg);
+            text(p + "%", {x: MARGIN.left - 4, y: y(p) + 4, "text-anchor": "end", "font-size": 10}, svg);
+        }
+        text(builds[0].label, {x: x(0), y: height - 5, "text-anchor": builds.length > 1 ? "start" : "middle", "font-size": 10}, svg);
+        if (builds.length > 1) {
+            text(builds[builds.length - 1].label, {x: x(builds.length - 1), y: height - 5, "text-anchor": "end", "font-size": 10}, svg);
+        }
+
+        SERIES.forEach(function (series) {
+            var points = [];
+            builds.forEach(function (build, i) {
+                if (build[series.key]) {
+                    points.push(x(i) + "," + y(build[series.key].percentage));
+                }
+            });
+            if (points.length > 1) {
+                element("polyline", {points: points.join(" "), fill: "none", stroke: series.color, "stroke-width": 2}, svg);
+            } else if (points.length === 1) {
+                var xy = points[0].split(",");
+                element("circle", {cx: xy[0], cy: xy[1], r: 3, fill: series.color}, svg);
+            }
+        });
+
+        // one band per build, to show its values on hover
+        var marker = element("line", {y1: MARGIN.top, y2: MARGIN.top + plotHeight, stroke: "#808080", visibility: "hidden"}, svg);
+        builds.forEach(function (build, i) {
+            var band = element("rect", {
+                x: x(i) - Math.max(step, 8) / 2, y: MARGIN.top,
+                width: Math.max(step, 8), height: plotHeight, fill: "transparent"
+            }, svg);
+            var lines = [build.label + " (" + new Date(build.timestamp).toLocaleString() + ")"];
+            SERIES.forEach(function (series) {
+                var ratio = build[series.key];
+                if (ratio) {
+                    lines.push(root.getAttribute("data-label-" + series.key) + ": " + ratio.percentage.toFixed(1)
+                        + "% (" + ratio.covered + "/" + (ratio.missed + ratio.covered) + ")");
+                }
+            });
+            element("title", {}, band).textContent = lines.join("\n");
+            band.addEventListener("mouseover", function () {
+                marker.setAttribute("x1", x(i));
+                marker.setAttribute("x2", x(i));
+                marker.setAttribute("visibility", "visible");
+            });
+            band.addEventListener("mouseout", function () {
+                marker.setAttribute("visibility", "hidden");
+            });
+        });
+
+        var legend = document.createElement("div");
+        legend.className = "ct-trend-legend";
+        SERIES.forEach(function (series) {
+            var item = document.createElement("span");
+            item.style.marginRight = "1em";
+            var swatch = document.createElement("span");
+            swatch.style.display = "inline-block";
+            swatch.style.width = "10px";
+            swatch.style.height = "10px";
+            swatch.style.marginRight = "3px";
+            swatch.style.backgroundColor = series.color;
+            item.appendChild(swatch);
+            item.appendChild(document.createTextNode(root.getAttribute("data-label-" + series.key)));
+            legend.appendChild(item);
+        });
+        root.appendChild(legend);
+    }
+
+    function init(root) {
+        var width = parseInt(root.getAttribute("data-width"), 10);
+        var height = parseInt(root.getAttribute("data-height"), 10);
+        // one build per two pixels, like the server side graph
+        var url = root.getAttribute("data-url") + "?maxPoints=" + Math.floor(width / 2);
+        fetch(url, {credentials: "same-origin"})
+            .then(function (rsp) { return rsp.json(); })
+            .then(function (trend) {
+                draw(root, trend.builds, width, height);
+            });
+    }
+
+    document.addEventListener("DOMContentLoaded", function () {
+        Array.prototype.forEach.call(document.querySelectorAll(".ct-trend"), init);
+    });
+})();
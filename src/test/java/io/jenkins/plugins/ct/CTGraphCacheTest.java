@@ -0,0 +1,131 @@
+package io.jenkins.plugins.ct;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CTGraphCacheTest {
+    private File job;
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        job = Files.createTempDirectory("ct-job").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(job);
+    }
+
+    private byte[] render() {
+        renders.incrementAndGet();
+        return new byte[] {1, 2, 3};
+    }
+
+    @Test
+    public void testRendersOnce() throws Exception {
+        CTGraphCache cache = new CTGraphCache(10);
+        CTGraphCache.Image first = cache.get(job, "graph 5", this::render);
+        CTGraphCache.Image second = cache.get(job, "graph 5", this::render);
+        assertEquals(1, renders.get());
+        assertEquals(first.getETag(), second.getETag());
+        assertTrue(first.getETag().startsWith("\""));
+
+        CTGraphCache.Image other = cache.get(job, "graph 6", this::render);
+        assertEquals(2, renders.get());
+        assertNotEquals(first.getETag(), other.getETag());
+    }
+
+    @Test
+    public void testReadsFromDisk() throws Exception {
+        CTGraphCache.Image image = new CTGraphCache(10).get(job, "graph", this::render);
+        // e.g. after a restart
+        CTGraphCache.Image again = new CTGraphCache(10).get(job, "graph", this::render);
+        assertEquals(1, renders.get());
+        assertEquals(image.getETag(), again.getETag());
+        assertEquals(image.getLastModified(), again.getLastModified());
+        assertEquals(3, again.getLength());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        CTGraphCache cache = new CTGraphCache(10);
+        File other = new File(job, "other");
+        cache.get(job, "graph", this::render);
+        cache.get(other, "graph", this::render);
+        cache.invalidate(job);
+
+        assertEquals(1, cache.getCount());
+        assertArrayEquals(new String[0], new File(job, CTGraphCache.DIR).list());
+        cache.get(job, "graph", this::render);
+        cache.get(other, "graph", this::render);
+        assertEquals(3, renders.get());
+    }
+
+    @Test
+    public void testMemoryIsBounded() throws Exception {
+        CTGraphCache cache = new CTGraphCache(2);
+        for (int i = 0; i < 5; i++) {
+            cache.get(job, "graph " + i, this::render);
+        }
+        assertEquals(2, cache.getCount());
+    }
+
+    @Test
+    public void testRedrawnGraphGetsNewETag() throws Exception {
+        CTGraphCache cache = new CTGraphCache(10);
+        CTGraphCache.Image before = cache.get(job, "graph", this::render);
+        // a build completed, the key with the last build number stays the same
+        cache.invalidate(job);
+        CTGraphCache.Image after = cache.get(job, "graph", () -> new byte[] {4, 5, 6});
+        assertNotEquals(before.getETag(), after.getETag());
+        assertFalse(after.matches(before.getETag()));
+    }
+
+    @Test
+    public void testKeepsTrendsApartFromGraphs() throws Exception {
+        CTGraphCache cache = new CTGraphCache(10);
+        CTGraphCache.Image graph = cache.get(job, "trend 5", this::render);
+        CTGraphCache.Image trend = cache.getJson(job, "trend 5", this::render);
+        assertEquals(2, renders.get());
+        assertNotEquals(graph.getETag(), trend.getETag());
+        assertEquals(trend.getETag(), new CTGraphCache(10).getJson(job, "trend 5", this::render).getETag());
+        assertEquals(2, renders.get());
+
+        cache.invalidate(job);
+        cache.getJson(job, "trend 5", this::render);
+        assertEquals(3, renders.get());
+    }
+
+    @Test
+    public void testFilesAreBounded() throws Exception {
+        CTGraphCache cache = new CTGraphCache(0, 3);
+        for (int i = 0; i < 5; i++) {
+            cache.get(job, "graph " + i, this::render);
+        }
+        assertEquals(3, new File(job, CTGraphCache.DIR).list().length);
+    }
+
+    @Test
+    public void testIfNoneMatch() throws Exception {
+        CTGraphCache.Image image = new CTGraphCache(10).get(job, "graph", this::render);
+        assertTrue(image.matches(image.getETag()));
+        assertTrue(image.matches("\"x\", " + image.getETag()));
+        assertTrue(image.matches("W/" + image.getETag()));
+        assertTrue(image.matches("*"));
+        assertFalse(image.matches("\"x\""));
+        assertFalse(image.matches(null));
+    }
+}
@@ -0,0 +1,104 @@
+package io.jenkins.plugins.ct;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.jenkins.plugins.ct.model.CoverageElement;
+import io.jenkins.plugins.ct.report.CoverageReport;
+import io.jenkins.plugins.ct.report.MethodReport;
+
+public class CTMethodHistoryTest {
+    private File dir;
+    private CTMethodHistory history;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("ct-job").toFile();
+        history = new CTMethodHistory(new File(dir, CTMethodHistory.DIR));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testKeyDependsOnNameAndSource() {
+        assertEquals(CTMethodHistory.key("f", "a.c"), CTMethodHistory.key("f", "a.c"));
+        assertNotEquals(CTMethodHistory.key("f", "a.c"), CTMethodHistory.key("f", "b.c"));
+        assertNotEquals(CTMethodHistory.key("fa", ".c"), CTMethodHistory.key("f", "a.c"));
+    }
+
+    @Test
+    public void testRecordAndRead() throws Exception {
+        CoverageReport report = new CoverageReport(null, Collections.emptyList());
+        for (int i = 0; i < 50; i++) {
+            report.add(method("f" + i, "a.c", i, 100 - i));
+        }
+        history.record(1, report);
+
+        for (int i = 0; i < 50; i++) {
+            int[] counters = history.read(1, CTMethodHistory.key("f" + i, "a.c"));
+            assertEquals(i, counters[0]);
+            assertEquals(100 - i, counters[1]);
+            // no branches
+            assertEquals(-1, counters[2]);
+        }
+        assertNull(history.read(1, CTMethodHistory.key("f1", "b.c")));
+        assertNull(history.read(2, CTMethodHistory.key("f1", "a.c")));
+    }
+
+    @Test
+    public void testTrendHead() throws Exception {
+        history.record(1, report(method("f", "a.c", 8, 2)));
+        history.record(2, report(method("g", "a.c", 1, 1)));
+        history.record(3, report(method("f", "a.c", 5, 5)));
+        history.record(4, report(method("f", "a.c", 0, 10)));
+        history.remove(4);
+
+        List<CTTrendIndex.Point> builds = Arrays.asList(
+                new CTTrendIndex.Point(1, 1000L), new CTTrendIndex.Point(2, 2000L),
+                new CTTrendIndex.Point(3, 3000L), new CTTrendIndex.Point(5, 5000L));
+        CTTrendIndex.Point head = history.getTrendHead(builds, 5, 5000L, method("f", "a.c", 1, 9));
+        assertEquals(5, head.getNumber());
+        assertEquals(90f, head.getStatementCoverage().getPercentageFloat(), 0.01f);
+
+        CTTrendIndex.Point previous = head.getPreviousResult();
+        assertEquals(3, previous.getNumber());
+        assertEquals(3000L, previous.getTimestamp());
+        assertEquals(50f, previous.getStatementCoverage().getPercentageFloat(), 0.01f);
+        assertFalse(previous.hasCoverage(CoverageElement.Type.BRANCH));
+
+        assertEquals(1, previous.getPreviousResult().getNumber());
+        assertNull(previous.getPreviousResult().getPreviousResult());
+    }
+
+    private static CoverageReport report(MethodReport... methods) {
+        CoverageReport report = new CoverageReport(null, Collections.emptyList());
+        for (MethodReport m : methods) {
+            report.add(m);
+        }
+        return report;
+    }
+
+    private static MethodReport method(String name, String source, int missed, int covered) {
+        MethodReport m = new MethodReport();
+        m.setName(name);
+        m.setSource(source);
+        m.setCounter(CoverageElement.Type.STATEMENT, missed, covered);
+        return m;
+    }
+}
@@ -0,0 +1,118 @@
+package io.jenkins.plugins.ct;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import io.jenkins.plugins.ct.report.CoverageReport;
+import io.jenkins.plugins.ct.report.MethodReport;
+
+public class CTReportCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        CTReportCache cache = new CTReportCache(300, CTReportCache.Policy.LRU);
+        CoverageReport a = report();
+        cache.put("a", a, 100);
+        cache.put("b", report(), 100);
+        cache.put("c", report(), 100);
+        assertSame(a, cache.get("a"));
+
+        cache.put("d", report(), 100);
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        assertEquals(3, cache.getCount());
+        assertEquals(300, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(4, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(80f, cache.getHitRatio(), 0.01f);
+    }
+
+    @Test
+    public void testLeastFrequentlyUsedIsEvicted() {
+        CTReportCache cache = new CTReportCache(300, CTReportCache.Policy.LFU);
+        cache.put("a", report(), 100);
+        cache.put("b", report(), 100);
+        cache.put("c", report(), 100);
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.get("c");
+        cache.get("c");
+
+        cache.put("d", report(), 100);
+        assertNull(cache.get("b"));
+
+        // of "a" and "c", used twice each, "a" was not used for longer
+        cache.get("d");
+        cache.get("d");
+        cache.get("d");
+        cache.put("e", report(), 100);
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+    }
+
+    @Test
+    public void testLastReportIsKeptOverBudget() {
+        CTReportCache cache = new CTReportCache(100, CTReportCache.Policy.LRU);
+        cache.put("a", report(), 50);
+        CoverageReport big = report();
+        cache.put("big", big, 500);
+        assertSame(big, cache.get("big"));
+        assertEquals(1, cache.getCount());
+        assertEquals(500, cache.getSize());
+
+        cache.configure(0, CTReportCache.Policy.LFU);
+        assertEquals(1, cache.getCount());
+        assertEquals(CTReportCache.Policy.LFU, cache.getPolicy());
+    }
+
+    @Test
+    public void testReplaceAndInvalidate() {
+        CTReportCache cache = new CTReportCache(1000, CTReportCache.Policy.LRU);
+        cache.put("a", report(), 100);
+        CoverageReport again = report();
+        cache.put("a", again, 200);
+        assertEquals(200, cache.getSize());
+        assertSame(again, cache.get("a"));
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void testEstimatedSizeGrowsWithFunctions() throws Exception {
+        CoverageReport empty = report();
+        CoverageReport sample;
+        try (InputStream is = getClass().getResourceAsStream("sample.xml")) {
+            sample = new CoverageReport(null, is);
+        }
+        long size = sample.getEstimatedSize();
+        // a few hundred bytes per function
+        assertTrue(size > 684 * 200L);
+        assertTrue(size < 684 * 10000L);
+        assertTrue(size > 100 * empty.getEstimatedSize());
+
+        MethodReport method = new MethodReport();
+        method.setName("added");
+        sample.add(method);
+        assertTrue(sample.getEstimatedSize() > size);
+    }
+
+    private static CoverageReport report() {
+        return new CoverageReport(null, Collections.emptyList());
+    }
+}
@@ -0,0 +1,113 @@
+package io.jenkins.plugins.ct;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.jenkins.plugins.ct.report.CoverageReport;
+import io.jenkins.plugins.ct.report.CoverageReportParserTest;
+
+public class CTReportDirTest {
+    private File buildDir;
+    private byte[] sample;
+
+    @Before
+    public void setUp() throws Exception {
+        buildDir = Files.createTempDirectory("ct-build").toFile();
+        try (InputStream is = getClass().getResourceAsStream("sample.xml")) {
+            sample = is.readAllBytes();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(buildDir);
+    }
+
+    @Test
+    public void testCompressLegacyFiles() throws Exception {
+        CTReportDir dir = new CTReportDir(buildDir);
+        File legacy = new File(dir.getCoverageReportFilesDir(), "xml0/coverage.xml");
+        Files.createDirectories(legacy.getParentFile().toPath());
+        Files.write(legacy.toPath(), sample);
+        long modified = 1500000000000L;
+        assertTrue(legacy.setLastModified(modified));
+        assertEquals(Collections.singletonList(legacy), dir.getXmlFiles());
+
+        long saved = dir.compressXmlFiles();
+
+        List<File> files = dir.getXmlFiles();
+        assertEquals(1, files.size());
+        File compressed = files.get(0);
+        assertEquals("coverage.xml.gz", compressed.getName());
+        assertFalse(legacy.exists());
+        assertEquals(modified, compressed.lastModified());
+        assertEquals(sample.length - compressed.length(), saved);
+        assertTrue(compressed.length() < sample.length / 5);
+        try (InputStream is = CTReportDir.open(compressed)) {
+            assertArrayEquals(sample, is.readAllBytes());
+        }
+        // nothing left to migrate
+        assertEquals(0, dir.compressXmlFiles());
+    }
+
+    @Test
+    public void testOpenPlainFile() throws Exception {
+        File xml = new File(buildDir, "coverage.xml");
+        Files.write(xml.toPath(), sample);
+        try (InputStream is = CTReportDir.open(xml)) {
+            assertArrayEquals(sample, is.readAllBytes());
+        }
+    }
+
+    /**
+     * Disk saved by gzip and what it costs to parse, on {@code sample.xml} scaled up.
+     * Only runs with {@code -Dct.benchmark=true}; {@code -Dct.benchmark.scale} sets the factor.
+     */
+    @Test
+    public void benchmarkCompressedStorage() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("ct.benchmark"));
+        int scale = Integer.getInteger("ct.benchmark.scale", 100);
+        File plain = new File(buildDir, "coverage.xml");
+        CoverageReportParserTest.writeScaledSample(plain, scale);
+        File compressed = new File(buildDir, "coverage.xml.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed.toPath()))) {
+            Files.copy(plain.toPath(), out);
+        }
+
+        // warm up once, then measure
+        parse(plain);
+        long plainNanos = parse(plain);
+        long compressedNanos = parse(compressed);
+
+        System.out.printf("plain %d bytes, gzip %d bytes (%.1f%% saved); parse plain %d ms, gzip %d ms (%.1f MB/s vs %.1f MB/s)%n",
+                plain.length(), compressed.length(), 100.0 * (plain.length() - compressed.length()) / plain.length(),
+                plainNanos / 1000000, compressedNanos / 1000000,
+                plain.length() * 1000.0 / plainNanos, plain.length() * 1000.0 / compressedNanos);
+        assertTrue(compressed.length() < plain.length());
+    }
+
+    private static long parse(File xml) throws IOException {
+        long start = System.nanoTime();
+        try (InputStream is = CTReportDir.open(xml)) {
+            new CoverageReport(null, is);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,109 @@
+package io.jenkins.plugins.ct;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.jenkins.plugins.ct.report.CoverageReport;
+
+public class CTReportLoadServiceTest {
+    private final CTReportCache cache = new CTReportCache(Long.MAX_VALUE, CTReportCache.Policy.LRU);
+
+    @Test
+    public void testConcurrentRequestsShareOneLoad() throws Exception {
+        CTReportLoadService service = new CTReportLoadService(cache, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        CoverageReport report = report();
+
+        CompletableFuture<CoverageReport> first = service.load("a", () -> {
+            calls.incrementAndGet();
+            release.await();
+            return report;
+        });
+        CompletableFuture<CoverageReport> second = service.load("a", () -> {
+            calls.incrementAndGet();
+            return report();
+        });
+        assertSame(first, second);
+        assertTrue(service.isLoading("a"));
+        assertFalse(first.isDone());
+
+        release.countDown();
+        assertSame(report, first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+
+        // now cached
+        CompletableFuture<CoverageReport> third = service.load("a", () -> {
+            calls.incrementAndGet();
+            return report();
+        });
+        assertTrue(third.isDone());
+        assertSame(report, third.get());
+        assertEquals(1, calls.get());
+        assertFalse(service.isLoading("a"));
+    }
+
+    @Test
+    public void testLoadsAreLimited() throws Exception {
+        CTReportLoadService service = new CTReportLoadService(cache, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        CompletableFuture<CoverageReport> a = service.load("a", () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await();
+            running.decrementAndGet();
+            return report();
+        });
+        CompletableFuture<CoverageReport> b = service.load("b", () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            running.decrementAndGet();
+            return report();
+        });
+        Thread.sleep(100);
+        assertFalse(b.isDone());
+        assertTrue(service.isLoading("b"));
+
+        release.countDown();
+        a.get(10, TimeUnit.SECONDS);
+        b.get(10, TimeUnit.SECONDS);
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void testFailedLoadsAreRetried() throws Exception {
+        CTReportLoadService service = new CTReportLoadService(cache, 1);
+        assertNull(service.load("a", () -> null).get(10, TimeUnit.SECONDS));
+        assertEquals(0, cache.getCount());
+
+        try {
+            service.load("a", () -> {
+                throw new IOException("broken");
+            }).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("broken", e.getCause().getMessage());
+        }
+        CoverageReport report = report();
+        assertSame(report, service.load("a", () -> report).get(10, TimeUnit.SECONDS));
+    }
+
+    private static CoverageReport report() {
+        return new CoverageReport(null, Collections.emptyList());
+    }
+}
@@ -0,0 +1,117 @@
+package io.jenkins.plugins.ct;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.jenkins.plugins.ct.model.Coverage;
+import io.jenkins.plugins.ct.report.CoverageReport;
+import io.jenkins.plugins.ct.report.MethodReport;
+import io.jenkins.plugins.ct.report.SourceFileReport;
+
+public class CTReportLoaderTest extends AbstractJacocoTestBase {
+    private final List<File> files = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        String sample;
+        try (InputStream is = getClass().getResourceAsStream("sample.xml")) {
+            sample = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        // distinct functions per suite, plus one suite that repeats the first one
+        for (int i = 0; i < 12; i++) {
+            File xml = File.createTempFile("coverage", ".xml");
+            String content = i == 11 ? sample : sample.replace("<method name=\"", "<method name=\"suite" + i + "_");
+            Files.write(xml.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            files.add(xml);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (File f : files) {
+            Files.deleteIfExists(f.toPath());
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        CoverageReport sequential = loadSequentially();
+        CoverageReport parallel = CTReportLoader.load(null, files);
+
+        assertEquals(12 * 684, parallel.getChildren().size());
+        assertCoverage(parallel.getStatementCoverage(), 12 * 1033, 12 * 956);
+        assertSameReport(sequential, parallel);
+        // same result whatever order the parser threads finish in
+        assertSameReport(parallel, CTReportLoader.load(null, files));
+    }
+
+    @Test
+    public void testSingleFile() throws Exception {
+        CoverageReport report = CTReportLoader.load(null, files.subList(11, 12));
+        assertEquals(684, report.getChildren().size());
+        assertCoverage(report.getStatementCoverage(), 1033, 956);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingFile() throws Exception {
+        List<File> broken = new ArrayList<>(files);
+        broken.add(new File(files.get(0).getParentFile(), "does-not-exist.xml"));
+        CTReportLoader.load(null, broken);
+    }
+
+    private CoverageReport loadSequentially() throws IOException {
+        InputStream[] streams = new InputStream[files.size()];
+        try {
+            for (int i = 0; i < streams.length; i++) {
+                streams[i] = new FileInputStream(files.get(i));
+            }
+            return new CoverageReport(null, streams);
+        } finally {
+            for (InputStream is : streams) {
+                if (is != null) {
+                    is.close();
+                }
+            }
+        }
+    }
+
+    private void assertSameReport(CoverageReport expected, CoverageReport actual) {
+        assertCounters(expected.getStatementCoverage(), actual.getStatementCoverage());
+        assertCounters(expected.getBranchCoverage(), actual.getBranchCoverage());
+        assertCounters(expected.getMCDCCoverage(), actual.getMCDCCoverage());
+        assertCounters(expected.getCallCoverage(), actual.getCallCoverage());
+        assertEquals(new ArrayList<>(expected.getChildren().keySet()), new ArrayList<>(actual.getChildren().keySet()));
+        for (MethodReport e : expected.getChildren().values()) {
+            MethodReport a = actual.getChildren().get(e.getName());
+            assertEquals(actual, a.getParent());
+            assertEquals(e.getSource(), a.getSource());
+            assertCounters(e.getStatementCoverage(), a.getStatementCoverage());
+            assertCounters(e.getBranchCoverage(), a.getBranchCoverage());
+            assertEquals(e.getChildren().size(), a.getChildren().size());
+            Iterator<SourceFileReport> lines = a.getChildren().values().iterator();
+            for (SourceFileReport line : e.getChildren().values()) {
+                SourceFileReport other = lines.next();
+                assertEquals(line.getNr(), other.getNr());
+                assertEquals(line.getMs() + "/" + line.getCs(), other.getMs() + "/" + other.getCs());
+                assertEquals(line.getMb() + "/" + line.getCb(), other.getMb() + "/" + other.getCb());
+            }
+        }
+    }
+
+    private void assertCounters(Coverage expected, Coverage actual) {
+        assertCoverage(actual, expected.getMissed(), expected.getCovered());
+    }
+}
@@ -0,0 +1,225 @@
+package io.jenkins.plugins.ct;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.FilePath;
+
+public class CTSourceStoreTest {
+    private File jobDir;
+    private File workspace;
+    private CTSourceStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        jobDir = Files.createTempDirectory("ct-job").toFile();
+        workspace = Files.createTempDirectory("ct-workspace").toFile();
+        store = new CTSourceStore(jobDir);
+        write("src/CppUTest/Utest.cpp", "int utest;");
+        write("src/CppUTest/TestHarness.cpp", "int harness;");
+        write("src/CppUTest/notes.txt", "not a source");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(jobDir);
+        FileUtils.deleteDirectory(workspace);
+    }
+
+    @Test
+    public void testUnchangedFilesAreStoredOnce() throws Exception {
+        CTReportDir first = build(1);
+        assertEquals(2, save(first));
+        write("src/CppUTest/Utest.cpp", "int utest = 1;");
+        CTReportDir second = build(2);
+        assertEquals(1, save(second));
+
+        Map<String, String> one = CTSourceStore.readManifest(first);
+        Map<String, String> two = CTSourceStore.readManifest(second);
+        assertEquals(one.keySet(), two.keySet());
+        assertEquals(one.get("src/CppUTest/TestHarness.cpp"), two.get("src/CppUTest/TestHarness.cpp"));
+        assertFalse(one.get("src/CppUTest/Utest.cpp").equals(two.get("src/CppUTest/Utest.cpp")));
+        assertEquals(3, store.readRefCounts().size());
+        assertEquals(Integer.valueOf(2), store.readRefCounts().get(one.get("src/CppUTest/TestHarness.cpp")));
+        assertFalse(second.getSourcesDir().exists());
+    }
+
+    @Test
+    public void testReleaseDeletesUnreferencedBlobs() throws Exception {
+        CTReportDir first = build(1);
+        save(first);
+        write("src/CppUTest/Utest.cpp", "int utest = 1;");
+        CTReportDir second = build(2);
+        save(second);
+        String old = CTSourceStore.readManifest(first).get("src/CppUTest/Utest.cpp");
+        String shared = CTSourceStore.readManifest(first).get("src/CppUTest/TestHarness.cpp");
+
+        store.release(first);
+
+        assertFalse(first.getSourceManifestFile().exists());
+        assertFalse(store.getBlob(old).exists());
+        assertTrue(store.getBlob(shared).exists());
+        assertEquals(Integer.valueOf(1), store.readRefCounts().get(shared));
+
+        store.release(second);
+        assertTrue(store.readRefCounts().isEmpty());
+        assertFalse(store.getBlob(shared).exists());
+    }
+
+    @Test
+    public void testResolveAgentPath() throws Exception {
+        CTReportDir build = build(1);
+        save(build);
+
+        File blob = store.resolve(build, "D:\\opensource\\cpputest-master\\src\\CppUTest\\Utest.cpp");
+        assertNotNull(blob);
+        assertEquals("int utest;", new String(Files.readAllBytes(blob.toPath()), StandardCharsets.UTF_8));
+        assertNull(store.resolve(build, "D:\\opensource\\cpputest-master\\src\\CppUTest\\Other.cpp"));
+        assertNull(store.resolve(build, "D:\\opensource\\cpputest-master\\xsrc\\CppUTest\\Utest.cpp"));
+    }
+
+    @Test
+    public void testSaveReferencedOnly() throws Exception {
+        File report = new File(workspace, "coverage.xml");
+        write("coverage.xml", "<report name=\"r\">"
+                + "<method name=\"a\" source=\"D:\\opensource\\cpputest-master\\src\\CppUTest\\Utest.cpp\"/>"
+                + "<method name=\"b\" source=\"D:\\opensource\\cpputest-master\\src\\CppUTest\\Utest.cpp\"/>"
+                + "<method name=\"c\" source=\"D:\\opensource\\cpputest-master\\src\\CppUTest\\Missing.cpp\"/>"
+                + "</report>");
+        CTReportDir build = build(1);
+
+        int copied = store.saveReferenced(build, new FilePath(workspace), Collections.singletonList(report.getPath()),
+                Collections.singletonList(new FilePath(new File(workspace, "src"))));
+
+        assertEquals(1, copied);
+        assertEquals(Collections.singleton("src/CppUTest/Utest.cpp"), CTSourceStore.readManifest(build).keySet());
+        assertNotNull(store.resolve(build, "D:\\opensource\\cpputest-master\\src\\CppUTest\\Utest.cpp"));
+    }
+
+    @Test
+    public void testReferencedSourcesStayInWorkspace() throws Exception {
+        Files.write(new File(jobDir, "outside.cpp").toPath(), "int outside;".getBytes(StandardCharsets.UTF_8));
+        File report = new File(workspace, "coverage.xml");
+        write("coverage.xml", "<report name=\"r\">"
+                + "<method name=\"a\" source=\"../" + jobDir.getName() + "/outside.cpp\"/>"
+                + "<method name=\"b\" source=\"src/CppUTest/Utest.cpp\"/>"
+                + "</report>");
+
+        try (CTSourceStore.Upload upload = store.prepareReferenced(build(1), new FilePath(workspace),
+                Collections.singletonList(report.getPath()), Collections.<FilePath>emptyList())) {
+            assertEquals(1, upload.getFileCount());
+        }
+    }
+
+    @Test
+    public void testRejectsPathsLeavingTheStaging() throws Exception {
+        File victim = new File(jobDir, "config.xml");
+        Files.write(victim.toPath(), "<project/>".getBytes(StandardCharsets.UTF_8));
+        String hash = CTSourceStore.hash(victim);
+        try {
+            store.new Upload(build(1), Collections.singletonMap("../../config.xml", hash),
+                    Collections.singletonMap("../../config.xml", new FilePath(workspace)));
+            fail("a path leaving the staging directory must be rejected");
+        } catch (IOException e) {
+            assertNotNull(e.getMessage());
+        }
+        assertTrue(victim.isFile());
+    }
+
+    @Test
+    public void testFileDeletedBeforeTransfer() throws Exception {
+        CTReportDir build = build(1);
+        try (CTSourceStore.Upload upload = store.prepare(build, Collections.singletonList(new FilePath(workspace)),
+                "**/*.cpp", "")) {
+            Files.delete(new File(workspace, "src/CppUTest/Utest.cpp").toPath());
+            CTTransfer transfer = new CTTransfer(new FilePath(workspace));
+            upload.addTo(transfer);
+            transfer.run();
+            assertEquals(1, upload.commit());
+        }
+        assertEquals(Collections.singleton("src/CppUTest/TestHarness.cpp"), CTSourceStore.readManifest(build).keySet());
+    }
+
+    @Test
+    public void testStoredContentIsHeldUntilCommit() throws Exception {
+        CTReportDir first = build(1);
+        save(first);
+        CTReportDir second = build(2);
+        try (CTSourceStore.Upload upload = store.prepare(second, Collections.singletonList(new FilePath(workspace)),
+                "**/*.cpp", "")) {
+            // the only other build referencing the contents goes away before the commit
+            store.release(first);
+            CTTransfer transfer = new CTTransfer(new FilePath(workspace));
+            upload.addTo(transfer);
+            transfer.run();
+            assertEquals(0, upload.commit());
+        }
+        Map<String, String> manifest = CTSourceStore.readManifest(second);
+        assertEquals(2, manifest.size());
+        for (String hash : manifest.values()) {
+            assertTrue(store.getBlob(hash).isFile());
+            assertEquals(Integer.valueOf(1), store.readRefCounts().get(hash));
+        }
+    }
+
+    @Test
+    public void testUncommittedUploadGivesBackReferences() throws Exception {
+        CTReportDir first = build(1);
+        save(first);
+        store.prepare(build(2), Collections.singletonList(new FilePath(workspace)), "**/*.cpp", "").close();
+        store.release(first);
+        assertTrue(store.readRefCounts().isEmpty());
+    }
+
+    @Test
+    public void testRejectsMalformedHashes() throws Exception {
+        File secret = new File(jobDir, "secret.key");
+        Files.write(secret.toPath(), "secret".getBytes(StandardCharsets.UTF_8));
+        String hostile = "../../secret.key";
+        try {
+            store.new Upload(build(1), Collections.singletonMap("src/a.cpp", hostile),
+                    Collections.singletonMap("src/a.cpp", new FilePath(workspace)));
+            fail("a hash from the agent that is not a SHA-256 must be rejected");
+        } catch (IOException e) {
+            assertNotNull(e.getMessage());
+        }
+
+        CTReportDir build = build(2);
+        Files.createDirectories(build.getSourceManifestFile().getParentFile().toPath());
+        Files.write(build.getSourceManifestFile().toPath(), (hostile + " src/a.cpp\n").getBytes(StandardCharsets.UTF_8));
+        assertTrue(CTSourceStore.readManifest(build).isEmpty());
+        assertNull(store.resolve(build, "src/a.cpp"));
+        store.release(build);
+        assertTrue(secret.isFile());
+    }
+
+    private CTReportDir build(int number) {
+        return new CTReportDir(new File(jobDir, "builds/" + number));
+    }
+
+    private int save(CTReportDir build) throws Exception {
+        return store.save(build, Collections.singletonList(new FilePath(workspace)), "**/*.cpp,**/*.h", "");
+    }
+
+    private void write(String path, String content) throws Exception {
+        File file = new File(workspace, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
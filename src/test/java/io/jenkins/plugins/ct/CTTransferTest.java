@@ -0,0 +1,132 @@
+package io.jenkins.plugins.ct;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.FilePath;
+
+public class CTTransferTest {
+    private File workspace;
+    private File buildDir;
+    private byte[] sample;
+
+    @Before
+    public void setUp() throws Exception {
+        workspace = Files.createTempDirectory("ct-workspace").toFile();
+        buildDir = Files.createTempDirectory("ct-build").toFile();
+        try (InputStream is = getClass().getResourceAsStream("sample.xml")) {
+            sample = is.readAllBytes();
+        }
+        write("reports/a/coverage.xml", sample);
+        write("reports/b/coverage.xml", sample);
+        write("src/main/Utest.cpp", "int utest;".getBytes(StandardCharsets.UTF_8));
+        write("src/main/Utest.h", "extern int utest;".getBytes(StandardCharsets.UTF_8));
+        write("src/test/UtestTest.cpp", "int test;".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(workspace);
+        FileUtils.deleteDirectory(buildDir);
+    }
+
+    @Test
+    public void testReportsAndSourcesInOneStream() throws Exception {
+        CTReportDir reportDir = new CTReportDir(buildDir);
+        FilePath ws = new FilePath(workspace);
+        List<FilePath> reports = Arrays.asList(ws.child("reports/a/coverage.xml"), ws.child("reports/b/coverage.xml"));
+
+        CTTransfer transfer = new CTTransfer(ws);
+        reportDir.addExecFiles(transfer, reports);
+        reportDir.saveSourcesFrom(transfer, ws.child("src/main"), "**/*.cpp", "");
+        transfer.addFiles(ws.child("src/test"), Arrays.asList("UtestTest.cpp", "Missing.cpp"),
+                CTTransfer.into(new File(buildDir, "extra")));
+        transfer.run();
+
+        assertEquals(4, transfer.getFileCount());
+        assertEquals(2L * sample.length + 10 + 9, transfer.getByteCount());
+        List<File> xmlFiles = reportDir.getXmlFiles();
+        assertEquals(2, xmlFiles.size());
+        for (File xml : xmlFiles) {
+            assertEquals("coverage.xml.gz", xml.getName());
+            try (InputStream is = CTReportDir.open(xml)) {
+                assertArrayEquals(sample, is.readAllBytes());
+            }
+        }
+        assertTrue(new File(reportDir.getSourcesDir(), "Utest.cpp").isFile());
+        assertFalse(new File(reportDir.getSourcesDir(), "Utest.h").exists());
+        assertTrue(new File(buildDir, "extra/UtestTest.cpp").isFile());
+        assertFalse(new File(buildDir, "extra/Missing.cpp").exists());
+    }
+
+    @Test
+    public void testNothingToTransfer() throws Exception {
+        CTTransfer transfer = new CTTransfer(new FilePath(workspace));
+        transfer.run();
+        assertEquals(0, transfer.getFileCount());
+    }
+
+    @Test
+    public void testRejectsUnknownGroups() throws Exception {
+        for (String name : new String[] {"-1/x.cpp", "1/x.cpp", "x.cpp"}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(bytes))) {
+                TarArchiveEntry entry = new TarArchiveEntry(name);
+                entry.setSize(1);
+                tar.putArchiveEntry(entry);
+                tar.write('x');
+                tar.closeArchiveEntry();
+            }
+            CTTransfer transfer = new CTTransfer(new FilePath(workspace));
+            transfer.addFiles(new FilePath(workspace), Arrays.asList("x.cpp"), CTTransfer.into(buildDir));
+            try {
+                transfer.unpack(new ByteArrayInputStream(bytes.toByteArray()));
+                fail("entry " + name + " must be rejected");
+            } catch (IOException e) {
+                assertNotNull(e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testRelativePaths() {
+        assertTrue(CTTransfer.isRelativePath("src/main/Utest.cpp"));
+        assertTrue(CTTransfer.isRelativePath("src/..main/Utest.cpp"));
+        assertFalse(CTTransfer.isRelativePath(""));
+        assertFalse(CTTransfer.isRelativePath("/etc/passwd"));
+        assertFalse(CTTransfer.isRelativePath("../../x"));
+        assertFalse(CTTransfer.isRelativePath("src/../../x"));
+        assertFalse(CTTransfer.isRelativePath("src/.."));
+        assertFalse(CTTransfer.isRelativePath("..\\..\\x"));
+        assertFalse(CTTransfer.isRelativePath("C:/Windows/win.ini"));
+        assertFalse(CTTransfer.isRelativePath("c:x"));
+    }
+
+    private void write(String path, byte[] content) throws Exception {
+        File file = new File(workspace, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+    }
+}
@@ -0,0 +1,126 @@
+package io.jenkins.plugins.ct;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.jenkins.plugins.ct.model.CoverageElement;
+import io.jenkins.plugins.ct.report.CoverageReport;
+
+public class CTTrendIndexTest {
+    private File dir;
+    private CTTrendIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("ct-job").toFile();
+        index = new CTTrendIndex(null, new File(dir, CTTrendIndex.FILE));
+        index.write(Collections.emptyList());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+        index.append(1, 1000L, coverage(10, 90, 5, 5));
+        index.append(3, 3000L, coverage(20, 80, 0, 0));
+        // recorded again, the last record wins
+        index.append(1, 1500L, coverage(1, 9, 2, 2));
+
+        List<CTTrendIndex.Point> points = index.getPoints();
+        assertEquals(2, points.size());
+        CTTrendIndex.Point first = points.get(0);
+        assertEquals(1, first.getNumber());
+        assertEquals(1500L, first.getTimestamp());
+        assertEquals(1, first.getMissed(CoverageElement.Type.STATEMENT));
+        assertEquals(9, first.getCovered(CoverageElement.Type.STATEMENT));
+        assertEquals(2, first.getMissed(CoverageElement.Type.BRANCH));
+        assertFalse(first.hasCoverage(CoverageElement.Type.MCDC));
+        assertNull(first.getPreviousResult());
+
+        CTTrendIndex.Point last = index.getLast();
+        assertEquals(3, last.getNumber());
+        assertEquals(80f, last.getStatementCoverage().getPercentageFloat(), 0.01f);
+        assertEquals(1, last.getPreviousResult().getNumber());
+        assertEquals(4 + 3 * (4 + 8 + 8 * 4), new File(dir, CTTrendIndex.FILE).length());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        index.append(1, 1000L, coverage(1, 1, 1, 1));
+        index.append(2, 2000L, coverage(2, 2, 2, 2));
+        index.append(3, 3000L, coverage(3, 3, 3, 3));
+        index.remove(2);
+        index.remove(7);
+
+        List<CTTrendIndex.Point> points = index.getPoints();
+        assertEquals(2, points.size());
+        assertEquals(3, points.get(1).getNumber());
+        assertEquals(1, points.get(1).getPreviousResult().getNumber());
+    }
+
+    @Test
+    public void testPointOfBuildNotInTrend() throws Exception {
+        index.append(1, 1000L, coverage(1, 1, 1, 1));
+        index.append(5, 5000L, coverage(5, 5, 5, 5));
+
+        CTTrendIndex.Point running = index.getPoint(4, 4000L, coverage(4, 6, 0, 0));
+        assertEquals(4, running.getNumber());
+        assertEquals(60f, running.getStatementCoverage().getPercentageFloat(), 0.01f);
+        assertEquals(1, running.getPreviousResult().getNumber());
+        assertEquals(5, index.getPoint(5, 0L, coverage(0, 0, 0, 0)).getMissed(CoverageElement.Type.STATEMENT));
+    }
+
+    @Test
+    public void testSkipsPartialRecord() throws Exception {
+        index.append(1, 1000L, coverage(1, 1, 1, 1));
+        Files.write(new File(dir, CTTrendIndex.FILE).toPath(), new byte[] {0, 0, 0}, StandardOpenOption.APPEND);
+        assertEquals(1, index.getPoints().size());
+        assertTrue(index.getLast().hasCoverage(CoverageElement.Type.STATEMENT));
+    }
+
+    @Test
+    public void testTrendJson() throws Exception {
+        for (int i = 1; i <= 20; i++) {
+            index.append(i, i * 1000L, coverage(20 - i, i, 0, 0));
+        }
+        JSONArray builds = index.getLast().getTrend(0).getJSONArray("builds");
+        assertEquals(20, builds.size());
+        JSONObject first = builds.getJSONObject(0);
+        assertEquals("#1", first.getString("label"));
+        assertEquals(1000L, first.getLong("timestamp"));
+        assertEquals(19, first.getJSONObject("statement").getInt("missed"));
+        assertEquals(5.0, first.getJSONObject("statement").getDouble("percentage"), 0.01);
+        assertFalse(first.has("branch"));
+
+        builds = index.getLast().getTrend(5).getJSONArray("builds");
+        assertEquals(5, builds.size());
+        assertEquals("#20", builds.getJSONObject(4).getString("label"));
+    }
+
+    private static CoverageReport coverage(int missedStatements, int coveredStatements, int missedBranches, int coveredBranches) {
+        CoverageReport report = new CoverageReport(null, Collections.emptyList());
+        report.setCounter(CoverageElement.Type.STATEMENT, missedStatements, coveredStatements);
+        if (missedBranches + coveredBranches > 0) {
+            report.setCounter(CoverageElement.Type.BRANCH, missedBranches, coveredBranches);
+        }
+        return report;
+    }
+}
@@ -5,16 +5,28 @@ import hudson.util.LogTaskListener;
 import io.jenkins.plugins.ct.CTBuildAction;
 import io.jenkins.plugins.ct.CTHealthReportThresholds;
 import io.jenkins.plugins.ct.CTReportDir;
+import io.jenkins.plugins.ct.model.Coverage;
+import io.jenkins.plugins.ct.model.CoverageElement;
 
 import org.junit.Test;
 
 import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import static java.nio.file.Files.createDirectories;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -45,6 +57,45 @@ public class JacocoBuildActionTest extends AbstractJacocoTestBase {
         assertNotNull(r);
     }
 
+    @Test
+    public void testLoadSumsReportCounters() throws Exception {
+        File testDir =  new File("target/test/JacocoBuildActionTest-sum");
+        for (int i = 0; i < 2; i++) {
+            File xml = new File(testDir, "ct/xmlFiles/xml" + i + "/coverage.xml");
+            createDirectories(xml.getParentFile().toPath());
+            try (InputStream is = getClass().getResourceAsStream("sample.xml")) {
+                Files.copy(is, xml.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        CTBuildAction r = CTBuildAction.load(
+                new CTHealthReportThresholds(30, 90, 25, 80, 15, 60, 15, 60, 20, 70, 0, 0),
+                new LogTaskListener(logger, Level.INFO),
+                new CTReportDir(testDir), null, null);
+        assertCoverage(r.statement, 2066, 1912);
+        assertCoverage(r.branch, 536, 844);
+        assertCoverage(r.call, 668, 1832);
+        assertCoverage(r.mcdc, 362, 458);
+    }
+
+    @Test
+    public void testSummaryUsesRecordedRatios() {
+        Map<CoverageElement.Type, Coverage> recorded = new EnumMap<>(CoverageElement.Type.class);
+        recorded.put(CoverageElement.Type.STATEMENT, new Coverage(10, 90));
+        recorded.put(CoverageElement.Type.BRANCH, new Coverage(90, 10));
+        recorded.put(CoverageElement.Type.CALL, new Coverage(1, 3));
+        // no build is attached, so loading the report would fail
+        CTBuildAction r = new CTBuildAction(recorded, null,
+                new CTHealthReportThresholds(30, 90, 25, 80, 15, 60, 15, 60, 20, 70, 0, 0),
+                new LogTaskListener(logger, Level.INFO), null, null);
+
+        Map<Coverage, Boolean> ratios = r.getCoverageRatios();
+        assertEquals(Arrays.asList(CoverageElement.Type.STATEMENT, CoverageElement.Type.BRANCH, CoverageElement.Type.MCDC,
+                CoverageElement.Type.CALL), ratios.keySet().stream().map(Coverage::getType).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(false, true, false, false), new ArrayList<>(ratios.values()));
+        assertEquals(90, ratios.keySet().iterator().next().getPercentage());
+        assertNull(r.statement.getType());
+    }
+
 	/*@Test
     public void testLoadReport1() throws Exception {
         JacocoBuildAction r = JacocoBuildAction.load(null,null,
@@ -43,6 +43,10 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import io.jenkins.plugins.ct.CTPublisher.DescriptorImpl;
+import io.jenkins.plugins.ct.model.Coverage;
+import io.jenkins.plugins.ct.model.CoverageElement;
+import io.jenkins.plugins.ct.report.CoverageReport;
+import io.jenkins.plugins.ct.report.ReportSnapshot;
 
 public class JacocoPublisherTest  {
     private final TaskListener taskListener = niceMock(TaskListener.class);
@@ -66,5 +70,26 @@ public class JacocoPublisherTest  {
 		
 	}
 
+	@Test
+	public void testSummarizeReportsOnAgent() throws Exception {
+		File xml = File.createTempFile("coverage", ".xml");
+		try {
+			FileUtils.copyInputStreamToFile(getClass().getResourceAsStream("sample.xml"), xml);
+			CTPublisher.AgentSummary summary = new CTPublisher.SummarizeReports(Collections.singletonList(xml.getPath()))
+					.invoke(xml.getParentFile(), null);
+
+			Coverage statement = summary.getRatios().get(CoverageElement.Type.STATEMENT);
+			assertEquals("1033/956", statement.getMissed() + "/" + statement.getCovered());
+			Coverage mcdc = summary.getRatios().get(CoverageElement.Type.MCDC);
+			assertEquals("181/229", mcdc.getMissed() + "/" + mcdc.getCovered());
+
+			CoverageReport report = new CoverageReport(null, ReportSnapshot.read(summary.getSnapshot()));
+			assertEquals(684, report.getChildren().size());
+			assertEquals(956, report.getStatementCoverage().getCovered());
+		} finally {
+			Files.deleteIfExists(xml.toPath());
+		}
+	}
+
 
 }
@@ -1,7 +1,13 @@
 package io.jenkins.plugins.ct.model;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Test;
 
+import hudson.model.Run;
 import io.jenkins.plugins.ct.AbstractJacocoTestBase;
 
 /**
@@ -13,6 +19,75 @@ public class CoverageObjectTest extends AbstractJacocoTestBase {
 	    // no test-content for now...
     }
 
+	@Test
+	public void testPackedCounters() {
+		Node node = new Node();
+		assertFalse(node.hasCoverage(CoverageElement.Type.BRANCH));
+		assertFalse(node.getBranchCoverage().isInitialized());
+
+		node.setCounter(CoverageElement.Type.BRANCH, Integer.MAX_VALUE, 0);
+		node.addCounter(CoverageElement.Type.STATEMENT, 3, 4);
+		node.addCounter(CoverageElement.Type.STATEMENT, 1, Integer.MAX_VALUE - 4);
+		assertEquals(Integer.MAX_VALUE, node.getMissed(CoverageElement.Type.BRANCH));
+		assertEquals(0, node.getCovered(CoverageElement.Type.BRANCH));
+		assertEquals(4, node.getMissed(CoverageElement.Type.STATEMENT));
+		assertEquals(Integer.MAX_VALUE, node.getCovered(CoverageElement.Type.STATEMENT));
+		assertTrue(node.hasStatementCoverage());
+		assertFalse(node.hasCoverage(CoverageElement.Type.CALL));
+		assertEquals(new Coverage(Integer.MAX_VALUE, 0), node.getBranchCoverage());
+		assertSame(CoverageElement.Type.STATEMENT, node.getStatementCoverage().getType());
+	}
+
+	@Test
+	public void testViewsWriteThrough() {
+		Node node = new Node();
+		Coverage call = node.getCallCoverage();
+		call.accumulate(2, 3);
+		call.accumulatePP(1, 1);
+		assertEquals(3, node.getMissed(CoverageElement.Type.CALL));
+		assertEquals(4, node.getCovered(CoverageElement.Type.CALL));
+		assertEquals(57, node.getCallCoverage().getPercentage());
+		assertEquals("3/4", call.toString());
+	}
+
+	@Test
+	public void testFieldTakesPrecedence() {
+		Node node = new Node();
+		node.setCounter(CoverageElement.Type.MCDC, 1, 1);
+		node.mcdc = new Coverage(5, 6);
+		assertSame(node.mcdc, node.getMCDCCoverage());
+		node.addCounter(CoverageElement.Type.MCDC, 1, 0);
+		assertEquals(new Coverage(6, 6), node.mcdc);
+	}
+
+	@Test
+	public void testPrintFourColumnsOfPackedAndFields() {
+		Node packed = new Node();
+		packed.setCounter(CoverageElement.Type.STATEMENT, 51, 200);
+		packed.setCounter(CoverageElement.Type.CALL, 0, 3);
+		Node fields = new Node();
+		fields.statement = new Coverage(51, 200);
+		fields.call = new Coverage(0, 3);
+
+		String html = packed.printFourCoverageColumns();
+		assertEquals(fields.printFourCoverageColumns(), html);
+		assertTrue(html, html.contains("data='079.68'"));
+		assertTrue(html, html.contains("<b>M:</b> 51 <b>C:</b> 200"));
+		assertEquals(2, html.split("<td bgcolor=").length - 1);
+	}
+
+	private static class Node extends CoverageObject<Node> {
+		@Override
+		public Run<?, ?> getBuild() {
+			return null;
+		}
+
+		@Override
+		public Node getPreviousResult() {
+			return null;
+		}
+	}
+
 	/*@Test
     public void testPrintRatioTable() throws Exception {
 
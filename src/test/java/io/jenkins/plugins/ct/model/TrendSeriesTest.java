@@ -0,0 +1,51 @@
+package io.jenkins.plugins.ct.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TrendSeriesTest {
+
+	@Test
+	public void testShortSeriesIsKept() {
+		float[][] series = {{1, 2, 3}};
+		assertArrayEquals(new int[] {0, 1, 2}, TrendSeries.downsample(series, 10));
+		assertArrayEquals(new int[] {0, 1, 2}, TrendSeries.downsample(series, 0));
+		assertArrayEquals(new int[] {0, 2}, TrendSeries.downsample(series, 2));
+		assertArrayEquals(new int[0], TrendSeries.downsample(new float[0][], 10));
+	}
+
+	@Test
+	public void testKeepsPeaksAndDrops() {
+		float[][] series = new float[2][1000];
+		Arrays.fill(series[0], 50f);
+		Arrays.fill(series[1], 80f);
+		series[0][321] = 90f;
+		series[1][654] = 10f;
+
+		int[] kept = TrendSeries.downsample(series, 40);
+		assertEquals(40, kept.length);
+		assertEquals(0, kept[0]);
+		assertEquals(999, kept[39]);
+		for (int i = 1; i < kept.length; i++) {
+			assertTrue(kept[i - 1] < kept[i]);
+		}
+		assertTrue(Arrays.binarySearch(kept, 321) >= 0);
+		assertTrue(Arrays.binarySearch(kept, 654) >= 0);
+	}
+
+	@Test
+	public void testIgnoresMissingValues() {
+		float[][] series = new float[1][100];
+		Arrays.fill(series[0], Float.NaN);
+		series[0][42] = 70f;
+		series[0][43] = 0f;
+		int[] kept = TrendSeries.downsample(series, 10);
+		assertEquals(10, kept.length);
+		assertEquals(99, kept[9]);
+	}
+}
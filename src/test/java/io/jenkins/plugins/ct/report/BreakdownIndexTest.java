@@ -0,0 +1,86 @@
+package io.jenkins.plugins.ct.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.jenkins.plugins.ct.model.CoverageElement;
+
+public class BreakdownIndexTest {
+    private static final String SAMPLE = "/io/jenkins/plugins/ct/sample.xml";
+
+    @Test
+    public void testSortFilterAndPage() {
+        CoverageReport report = new CoverageReport(null, Collections.emptyList());
+        report.add(method("c", 0, 10));
+        report.add(method("a", 5, 5));
+        report.add(method("B", 9, 1));
+        MethodReport empty = new MethodReport();
+        empty.setName("d");
+        report.add(empty);
+        BreakdownIndex index = report.getBreakdownIndex();
+
+        assertEquals(Arrays.asList("B", "a", "c", "d"), names(index.query(BreakdownIndex.Sort.NAME, false, null, 0, 10)));
+        // functions without statement coverage first
+        assertEquals(Arrays.asList("d", "B", "a", "c"), names(index.query(BreakdownIndex.Sort.STATEMENT, false, null, 0, 10)));
+        assertEquals(Arrays.asList("B", "a", "c", "d"), names(index.query(BreakdownIndex.Sort.MISSED, true, null, 0, 10)));
+        assertEquals(Arrays.asList("a", "c"), names(index.query(BreakdownIndex.Sort.STATEMENT, false, null, 2, 10)));
+        assertEquals(Arrays.asList("B"), names(index.query(BreakdownIndex.Sort.STATEMENT, false, null, 1, 1)));
+
+        BreakdownIndex.Page page = index.query(BreakdownIndex.Sort.NAME, false, "b", 0, 10);
+        assertEquals(1, page.matches);
+        assertEquals(Arrays.asList("B"), names(page));
+        assertEquals(0, index.query(BreakdownIndex.Sort.NAME, false, "x", 0, 10).matches);
+
+        assertSame(BreakdownIndex.Sort.MCDC, BreakdownIndex.Sort.parse("mcdc"));
+        assertSame(BreakdownIndex.Sort.NAME, BreakdownIndex.Sort.parse(null));
+        assertSame(BreakdownIndex.Sort.NAME, BreakdownIndex.Sort.parse("size"));
+    }
+
+    @Test
+    public void testRebuiltWhenChildrenChange() throws Exception {
+        CoverageReport report;
+        try (InputStream is = getClass().getResourceAsStream(SAMPLE)) {
+            report = new CoverageReport(null, is);
+        }
+        BreakdownIndex index = report.getBreakdownIndex();
+        assertEquals(684, index.size());
+        assertSame(index, report.getBreakdownIndex());
+
+        BreakdownIndex.Page page = index.query(BreakdownIndex.Sort.BRANCH, true, null, 0, 684);
+        float last = Float.MAX_VALUE;
+        for (MethodReport method : page.rows) {
+            float value = BreakdownIndex.Sort.BRANCH.value(method);
+            assertTrue(value <= last);
+            last = value;
+        }
+
+        report.add(method("added", 1, 1));
+        assertNotSame(index, report.getBreakdownIndex());
+        assertEquals(685, report.getBreakdownIndex().size());
+    }
+
+    private static MethodReport method(String name, int missed, int covered) {
+        MethodReport method = new MethodReport();
+        method.setName(name);
+        method.setCounter(CoverageElement.Type.STATEMENT, missed, covered);
+        return method;
+    }
+
+    private static List<String> names(BreakdownIndex.Page page) {
+        List<String> names = new ArrayList<>();
+        for (MethodReport method : page.rows) {
+            names.add(method.getName());
+        }
+        return names;
+    }
+}
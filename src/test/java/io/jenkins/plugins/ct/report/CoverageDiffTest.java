@@ -0,0 +1,113 @@
+package io.jenkins.plugins.ct.report;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import io.jenkins.plugins.ct.model.CoverageElement;
+
+public class CoverageDiffTest {
+
+    @Test
+    public void testFunctions() {
+        CoverageReport before = report(
+                method("a", 2, 8, new int[][] {{1, 0, 1, 0, 0}, {2, 0, 1, 1, 1}}),
+                method("b", 5, 5, new int[][] {{1, 1, 0, 0, 0}}),
+                method("c", 0, 1, new int[][] {{1, 0, 1, 0, 0}}));
+        CoverageReport after = report(
+                method("a", 3, 7, new int[][] {{1, 0, 1, 0, 0}, {2, 1, 0, 2, 0}, {3, 1, 0, 0, 0}}),
+                method("b", 5, 5, new int[][] {{1, 1, 0, 0, 0}}),
+                method("d", 1, 0, new int[][] {{1, 1, 0, 0, 0}}));
+
+        CoverageDiff diff = CoverageDiff.compare(before, after);
+        List<CoverageDiff.Function> functions = diff.getFunctions();
+        assertEquals(3, functions.size());
+        assertEquals(1, diff.getAdded());
+        assertEquals(1, diff.getRemoved());
+        assertEquals(1, diff.getLosses());
+
+        CoverageDiff.Function a = functions.get(0);
+        assertEquals("a", a.getName());
+        assertEquals(CoverageDiff.Change.CHANGED, a.getChange());
+        assertTrue(a.isLoss());
+        assertEquals(8, a.getBefore()[1]);
+        assertEquals(7, a.getAfter()[1]);
+        assertEquals(-1, a.getAfter()[2]);
+        assertEquals(2, a.getLines().size());
+        CoverageDiff.Line line = a.getLines().get(0);
+        assertEquals(2, line.getNr());
+        assertTrue(line.isLoss());
+        assertArrayEquals(new int[] {0, 1, 1, 1}, line.getBefore());
+        assertArrayEquals(new int[] {1, 0, 2, 0}, line.getAfter());
+        assertNull(a.getLines().get(1).getBefore());
+        assertFalse(a.getLines().get(1).isLoss());
+
+        assertEquals("c", functions.get(1).getName());
+        assertEquals(CoverageDiff.Change.REMOVED, functions.get(1).getChange());
+        assertNull(functions.get(1).getAfter());
+        assertFalse(functions.get(1).isLoss());
+        assertEquals("d", functions.get(2).getName());
+        assertEquals(CoverageDiff.Change.ADDED, functions.get(2).getChange());
+    }
+
+    @Test
+    public void testSameReports() {
+        CoverageReport report = report(method("a", 1, 1, new int[][] {{1, 1, 1, 0, 0}}));
+        CoverageDiff diff = CoverageDiff.compare(report, report(method("a", 1, 1, new int[][] {{1, 1, 1, 0, 0}})));
+        assertTrue(diff.getFunctions().isEmpty());
+        assertTrue(CoverageDiff.compare(report(), report()).getFunctions().isEmpty());
+    }
+
+    @Test
+    public void benchmarkLargeReports() {
+        Assume.assumeTrue(Boolean.getBoolean("ct.benchmark"));
+        int methods = Integer.getInteger("ct.benchmark.methods", 100000);
+        CoverageReport before = new CoverageReport(null, Collections.emptyList());
+        CoverageReport after = new CoverageReport(null, Collections.emptyList());
+        for (int i = 0; i < methods; i++) {
+            String name = String.format("function%07d", i);
+            int[][] lines = new int[10][];
+            int[][] changed = new int[10][];
+            for (int l = 0; l < lines.length; l++) {
+                lines[l] = new int[] {l + 1, 0, 1, 0, 0};
+                changed[l] = i % 100 == 0 && l == 5 ? new int[] {l + 1, 1, 0, 0, 0} : lines[l];
+            }
+            before.add(method(name, 0, 10, lines));
+            after.add(method(name, 0, 10, changed));
+        }
+        before.freeze();
+        after.freeze();
+
+        long start = System.nanoTime();
+        CoverageDiff diff = CoverageDiff.compare(before, after);
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%d methods: diff in %d ms%n", methods, nanos / 1000000);
+        assertEquals(methods / 100, diff.getLosses());
+    }
+
+    private static CoverageReport report(MethodReport... methods) {
+        CoverageReport report = new CoverageReport(null, Collections.emptyList());
+        for (MethodReport m : methods) {
+            report.add(m);
+        }
+        return report;
+    }
+
+    private static MethodReport method(String name, int missed, int covered, int[][] lines) {
+        MethodReport m = new MethodReport();
+        m.setName(name);
+        m.setCounter(CoverageElement.Type.STATEMENT, missed, covered);
+        for (int[] line : lines) {
+            m.addLine(line[0], line[1], line[2], line[3], line[4]);
+        }
+        return m;
+    }
+}
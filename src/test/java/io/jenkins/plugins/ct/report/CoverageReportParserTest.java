@@ -0,0 +1,160 @@
+package io.jenkins.plugins.ct.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.jenkins.plugins.ct.model.Coverage;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class CoverageReportParserTest {
+    private static final String SAMPLE = "/io/jenkins/plugins/ct/sample.xml";
+    private static final String DIGESTER = CoverageReport.class.getName() + ".DIGESTER";
+
+    @Test
+    public void testSameTreeAsDigester() throws Exception {
+        CoverageReport stax = new CoverageReport(null, getClass().getResourceAsStream(SAMPLE));
+        CoverageReport digester = parseWithDigester(getClass().getResourceAsStream(SAMPLE));
+
+        assertEquals(684, stax.getChildren().size());
+        assertEquals("M:1033 C:956", counters(stax.getStatementCoverage()));
+        assertEquals("M:268 C:422", counters(stax.getBranchCoverage()));
+        assertEquals("M:334 C:916", counters(stax.getCallCoverage()));
+        assertEquals("M:181 C:229", counters(stax.getMCDCCoverage()));
+        assertSameTree(digester, stax);
+    }
+
+    @Test
+    public void testRejectsDoctype() {
+        String xml = "<?xml version=\"1.0\"?><!DOCTYPE report [<!ENTITY x SYSTEM \"file:///etc/passwd\">]>"
+                + "<report name=\"r\"><method name=\"&x;\"/></report>";
+        try {
+            new CoverageReport(null, new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+            fail("DOCTYPE must be rejected");
+        } catch (IOException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIgnoresUnknownLineAttributes() throws Exception {
+        String xml = "<report name=\"r\"><method name=\"a\">"
+                + "<line nr=\"3\" ms=\"0\" cs=\"2\" mb=\"1\" cb=\"1\" hint=\"inlined\"/>"
+                + "</method></report>";
+        CoverageReport report = new CoverageReport(null, new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        LineTable lines = report.getChildren().get("a").getLines();
+        assertEquals(1, lines.size());
+        assertEquals(3, lines.get(LineTable.NR, 0));
+        assertEquals(2, lines.get(LineTable.CS, 0));
+        assertEquals(1, lines.get(LineTable.CB, 0));
+    }
+
+    /**
+     * Compares the parsers on {@code sample.xml} scaled up 1000 times.
+     * Only runs with {@code -Dct.benchmark=true}; {@code -Dct.benchmark.scale} overrides the factor.
+     */
+    @Test
+    public void benchmarkScaledSample() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("ct.benchmark"));
+        int scale = Integer.getInteger("ct.benchmark.scale", 1000);
+        File xml = File.createTempFile("ct-scaled", ".xml");
+        try {
+            writeScaledSample(xml, scale);
+            long start = System.nanoTime();
+            CoverageReport digester;
+            try (InputStream is = new FileInputStream(xml)) {
+                digester = parseWithDigester(is);
+            }
+            long digesterNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            CoverageReport stax;
+            try (InputStream is = new FileInputStream(xml)) {
+                stax = new CoverageReport(null, is);
+            }
+            long staxNanos = System.nanoTime() - start;
+
+            System.out.printf("%d bytes, %d methods: digester %d ms, stax %d ms%n", xml.length(),
+                    stax.getChildren().size(), digesterNanos / 1000000, staxNanos / 1000000);
+            assertEquals(digester.getChildren().size(), stax.getChildren().size());
+        } finally {
+            Files.deleteIfExists(xml.toPath());
+        }
+    }
+
+    public static void writeScaledSample(File target, int scale) throws IOException {
+        String sample;
+        try (InputStream is = CoverageReportParserTest.class.getResourceAsStream(SAMPLE)) {
+            sample = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Matcher methods = Pattern.compile("(?s)<method .*?</method>").matcher(sample);
+        StringBuilder block = new StringBuilder();
+        int tail = 0;
+        while (methods.find()) {
+            block.append(methods.group()).append('\n');
+            tail = methods.end();
+        }
+        String footer = sample.substring(tail);
+        try (Writer w = new BufferedWriter(Files.newBufferedWriter(target.toPath(), StandardCharsets.UTF_8))) {
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<report name=\"scaled\">\n");
+            for (int i = 0; i < scale; i++) {
+                // keep function names unique so the tree really grows
+                w.write(block.toString().replace("<method name=\"", "<method name=\"s" + i + "_"));
+            }
+            w.write(footer.substring(footer.indexOf("<counter")));
+        }
+    }
+
+    private static CoverageReport parseWithDigester(InputStream is) throws IOException {
+        System.setProperty(DIGESTER, "true");
+        try {
+            return new CoverageReport(null, is);
+        } finally {
+            System.clearProperty(DIGESTER);
+        }
+    }
+
+    private static void assertSameTree(CoverageReport expected, CoverageReport actual) {
+        assertEquals(counters(expected.getStatementCoverage()), counters(actual.getStatementCoverage()));
+        assertEquals(counters(expected.getBranchCoverage()), counters(actual.getBranchCoverage()));
+        assertEquals(counters(expected.getCallCoverage()), counters(actual.getCallCoverage()));
+        assertEquals(counters(expected.getMCDCCoverage()), counters(actual.getMCDCCoverage()));
+        assertEquals(expected.getChildren().keySet(), actual.getChildren().keySet());
+        for (MethodReport e : expected.getChildren().values()) {
+            MethodReport a = actual.getChildren().get(e.getName());
+            assertEquals(e.getDesc(), a.getDesc());
+            assertEquals(e.getLine(), a.getLine());
+            assertEquals(e.getSource(), a.getSource());
+            assertEquals(e.printFourCoverageColumns(), a.printFourCoverageColumns());
+            assertEquals(e.getChildren().size(), a.getChildren().size());
+            Iterator<SourceFileReport> lines = a.getChildren().values().iterator();
+            for (SourceFileReport line : e.getChildren().values()) {
+                SourceFileReport other = lines.next();
+                assertEquals(line.getNr(), other.getNr());
+                assertEquals(line.getMs(), other.getMs());
+                assertEquals(line.getCs(), other.getCs());
+                assertEquals(line.getMb(), other.getMb());
+                assertEquals(line.getCb(), other.getCb());
+            }
+        }
+    }
+
+    private static String counters(Coverage c) {
+        return "M:" + c.getMissed() + " C:" + c.getCovered();
+    }
+}
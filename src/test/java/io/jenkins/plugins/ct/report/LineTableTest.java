@@ -0,0 +1,116 @@
+package io.jenkins.plugins.ct.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class LineTableTest {
+
+    @Test
+    public void testBuilderSortsAndKeepsLastDuplicate() {
+        LineTable.Builder builder = new LineTable.Builder();
+        builder.add(12, 1, 0, 0, 0);
+        builder.add(3, 0, 1, 0, 0);
+        builder.add(12, 0, 1, 2, 2);
+        builder.add(7, 1, 1, 0, 0);
+        LineTable table = builder.build();
+
+        assertEquals(3, table.size());
+        assertEquals(3, table.get(LineTable.NR, 0));
+        assertEquals(7, table.get(LineTable.NR, 1));
+        assertEquals(12, table.get(LineTable.NR, 2));
+        assertEquals(0, table.get(LineTable.MS, 2));
+        assertEquals(2, table.get(LineTable.CB, 2));
+        assertEquals(1, table.indexOf(7));
+        assertTrue(table.indexOf(8) < 0);
+        assertTrue(table.indexOf(100) < 0);
+    }
+
+    @Test
+    public void testMethodCreatesLineViews() throws Exception {
+        MethodReport method = new MethodReport();
+        method.setName("f");
+        method.addLine(10, 1, 2, 3, 4);
+        method.addLine(9, 0, 1, 0, 0);
+        method.addLine(11, 0, 0, 0, 0);
+
+        Map<String, SourceFileReport> lines = method.getChildren();
+        assertEquals(Arrays.asList("10", "11", "9"), new ArrayList<>(lines.keySet()));
+        SourceFileReport line = lines.get("10");
+        assertSame(method, line.getParent());
+        assertEquals(1, line.getMs());
+        assertEquals(2, line.getCs());
+        assertEquals(3, line.getMb());
+        assertEquals(4, line.getCb());
+
+        SourceFileReport page = method.getDynamic("9", null, null);
+        assertEquals(9, page.getNr());
+        assertSame(method, page.getParent());
+        assertNull(method.getDynamic("12", null, null));
+        assertNull(method.getDynamic("x", null, null));
+        assertTrue(method.hasChildren());
+    }
+
+    /**
+     * Compares the used heap of the line reports of {@code sample.xml} scaled up 100 times,
+     * kept as {@link SourceFileReport}s and as {@link LineTable}s.
+     * Only runs with {@code -Dct.benchmark=true}; {@code -Dct.benchmark.scale} overrides the factor.
+     */
+    @Test
+    public void benchmarkRetainedHeap() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("ct.benchmark"));
+        int scale = Integer.getInteger("ct.benchmark.scale", 100);
+        File xml = File.createTempFile("ct-scaled", ".xml");
+        try {
+            CoverageReportParserTest.writeScaledSample(xml, scale);
+            CoverageReport report;
+            try (InputStream is = new FileInputStream(xml)) {
+                report = new CoverageReport(null, is);
+            }
+
+            long base = usedHeap();
+            List<MethodReport> objects = new ArrayList<>();
+            for (MethodReport method : report.getChildren().values()) {
+                MethodReport copy = new MethodReport();
+                for (SourceFileReport line : method.getChildren().values()) {
+                    copy.add(line);
+                }
+                objects.add(copy);
+            }
+            long objectBytes = usedHeap() - base;
+
+            base = usedHeap();
+            List<LineTable> tables = new ArrayList<>();
+            for (MethodReport method : objects) {
+                tables.add(method.getLines());
+            }
+            long tableBytes = usedHeap() - base;
+            System.out.printf("%d methods: SourceFileReports %d KB, line tables %d KB%n",
+                    objects.size(), objectBytes / 1024, tableBytes / 1024);
+            assertEquals(objects.size(), tables.size());
+        } finally {
+            xml.delete();
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
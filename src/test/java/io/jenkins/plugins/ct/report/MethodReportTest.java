@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 
 import java.io.StringWriter;
 
+import org.jacoco.core.analysis.IMethodCoverage;
 import org.junit.Test;
 
 import io.jenkins.plugins.ct.report.MethodReport;
@@ -31,4 +32,22 @@ public class MethodReportTest {
         assertEquals(1, report.getChildren().size());
         assertEquals("testname", report.getChildren().values().iterator().next().getName());
     }
+
+    @Test
+    public void testSrcFileInfoFromLines() {
+        MethodReport report = new MethodReport();
+        report.setName("fn");
+        report.addLine(12, 1, 0, 0, 0);
+        report.addLine(10, 0, 2, 1, 1);
+        report.finishLines();
+
+        IMethodCoverage info = report.getSrcFileInfo();
+        assertEquals(10, info.getFirstLine());
+        assertEquals(12, info.getLastLine());
+        assertEquals(2, info.getLine(10).getInstructionCounter().getCoveredCount());
+        assertEquals(1, info.getLine(10).getBranchCounter().getMissedCount());
+        assertEquals(1, info.getLine(12).getInstructionCounter().getMissedCount());
+        // built on demand and not kept
+        assertNotSame(info, report.getSrcFileInfo());
+    }
 }
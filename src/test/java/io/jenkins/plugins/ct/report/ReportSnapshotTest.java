@@ -0,0 +1,141 @@
+package io.jenkins.plugins.ct.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.jenkins.plugins.ct.model.Coverage;
+import io.jenkins.plugins.ct.model.CoverageElement;
+
+public class ReportSnapshotTest {
+    private File file;
+    private CoverageReport parsed;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("report", ".snapshot");
+        parsed = new CoverageReport(null, getClass().getResourceAsStream("/io/jenkins/plugins/ct/sample.xml"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ReportSnapshot.write(parsed, file);
+        CoverageReport restored = new CoverageReport(null, ReportSnapshot.open(file));
+
+        assertCounters(parsed, restored);
+        assertEquals(parsed.getChildren().keySet(), restored.getChildren().keySet());
+        for (MethodReport expected : parsed.getChildren().values()) {
+            MethodReport actual = restored.getChildren().get(expected.getName());
+            assertEquals(expected.getDesc(), actual.getDesc());
+            assertEquals(expected.getLine(), actual.getLine());
+            assertEquals(expected.getSource(), actual.getSource());
+            assertEquals(restored, actual.getParent());
+            assertCounters(expected, actual);
+            assertEquals(expected.getChildren().keySet(), actual.getChildren().keySet());
+            Iterator<SourceFileReport> lines = actual.getChildren().values().iterator();
+            for (SourceFileReport line : expected.getChildren().values()) {
+                SourceFileReport other = lines.next();
+                assertEquals(actual, other.getParent());
+                assertEquals(line.getNr(), other.getNr());
+                assertEquals(line.getMs(), other.getMs());
+                assertEquals(line.getCs(), other.getCs());
+                assertEquals(line.getMb(), other.getMb());
+                assertEquals(line.getCb(), other.getCb());
+            }
+        }
+    }
+
+    @Test
+    public void testSmallerThanXml() throws Exception {
+        ReportSnapshot.write(parsed, file);
+        try (InputStream xml = getClass().getResourceAsStream("/io/jenkins/plugins/ct/sample.xml")) {
+            long xmlSize = xml.readAllBytes().length;
+            assertTrue(file.length() < xmlSize / 2);
+        }
+    }
+
+    @Test
+    public void testRejectsOtherVersion() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportSnapshot.write(parsed, out);
+        byte[] bytes = out.toByteArray();
+        bytes[7] = (byte) (ReportSnapshot.VERSION + 1);
+        try {
+            ReportSnapshot.read(bytes);
+            fail("a snapshot of another version must be rejected");
+        } catch (IOException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRejectsOversizedCounts() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportSnapshot.write(parsed, out);
+        byte[] bytes = out.toByteArray();
+        // the size of the string pool, after magic, version and the report counters
+        ByteBuffer.wrap(bytes).putInt(8 + 4 * (1 + 2 * CoverageElement.Type.values().length), Integer.MAX_VALUE);
+        try {
+            ReportSnapshot.read(bytes);
+            fail("a string pool larger than the snapshot must be rejected");
+        } catch (IOException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRejectsMethodWithoutName() throws Exception {
+        CoverageReport report = new CoverageReport(null, Collections.emptyList());
+        MethodReport method = new MethodReport();
+        method.setName("a");
+        report.add(method);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportSnapshot.write(report, out);
+        byte[] bytes = out.toByteArray();
+        // skip magic, version, the report counters and the string pool to the first method's name
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(8 + 4 * (1 + 2 * CoverageElement.Type.values().length));
+        for (int n = buffer.getInt(); n > 0; n--) {
+            int length = buffer.getInt();
+            buffer.position(buffer.position() + length);
+        }
+        buffer.putInt(buffer.position() + 4, -1);
+        try {
+            ReportSnapshot.read(bytes);
+            fail("a method without a name must be rejected");
+        } catch (IOException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    private static void assertCounters(AbstractReport<?, ?> expected, AbstractReport<?, ?> actual) {
+        assertCoverage(expected.getStatementCoverage(), actual.getStatementCoverage());
+        assertCoverage(expected.getBranchCoverage(), actual.getBranchCoverage());
+        assertCoverage(expected.getMCDCCoverage(), actual.getMCDCCoverage());
+        assertCoverage(expected.getCallCoverage(), actual.getCallCoverage());
+    }
+
+    private static void assertCoverage(Coverage expected, Coverage actual) {
+        assertEquals(expected.isInitialized(), actual.isInitialized());
+        assertEquals(expected.getMissed() + "/" + expected.getCovered(), actual.getMissed() + "/" + actual.getCovered());
+    }
+}
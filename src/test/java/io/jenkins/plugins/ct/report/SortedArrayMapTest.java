@@ -0,0 +1,149 @@
+package io.jenkins.plugins.ct.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntSupplier;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class SortedArrayMapTest {
+    private static final String SAMPLE = "/io/jenkins/plugins/ct/sample.xml";
+
+    @Test
+    public void testSameAsTreeMap() {
+        Map<String, Integer> tree = new TreeMap<>();
+        for (String key : new String[] {"b", "a", "TEST(x)", "c::d", "B", ""}) {
+            tree.put(key, key.length());
+        }
+        Map<String, Integer> frozen = new SortedArrayMap<>(tree);
+
+        assertEquals(tree, frozen);
+        assertEquals(tree.hashCode(), frozen.hashCode());
+        assertEquals(new ArrayList<>(tree.keySet()), new ArrayList<>(frozen.keySet()));
+        assertEquals(new ArrayList<>(tree.values()), new ArrayList<>(frozen.values()));
+        assertEquals(Integer.valueOf(4), frozen.get("c::d"));
+        assertTrue(frozen.containsKey(""));
+        assertNull(frozen.get("d"));
+        assertNull(frozen.get(1));
+        assertFalse(frozen.keySet().contains("A"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        new SortedArrayMap<>(new TreeMap<String, Integer>()).put("a", 1);
+    }
+
+    @Test
+    public void testLoadedReportIsFrozen() throws Exception {
+        CoverageReport report;
+        try (InputStream is = getClass().getResourceAsStream(SAMPLE)) {
+            report = new CoverageReport(null, is);
+        }
+        assertTrue(report.getChildren() instanceof SortedArrayMap);
+        assertEquals(684, report.getChildren().size());
+        String name = report.getChildren().keySet().iterator().next();
+        assertSame(report.getChildren().get(name), report.getDynamic(name, null, null));
+
+        MethodReport added = new MethodReport();
+        added.setName("added");
+        report.add(added);
+        assertEquals(685, report.getChildren().size());
+        assertSame(added, report.getDynamic("added", null, null));
+    }
+
+    /**
+     * Compares lookups, iteration and retained heap of the functions of {@code sample.xml}
+     * scaled up 100 times, in a {@link TreeMap} and in a {@link SortedArrayMap}.
+     * Only runs with {@code -Dct.benchmark=true}; {@code -Dct.benchmark.scale} overrides the factor.
+     */
+    @Test
+    public void benchmarkLookupAndIteration() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("ct.benchmark"));
+        int scale = Integer.getInteger("ct.benchmark.scale", 100);
+        File xml = File.createTempFile("ct-scaled", ".xml");
+        try {
+            CoverageReportParserTest.writeScaledSample(xml, scale);
+            CoverageReport report = new CoverageReport(null, Collections.emptyList());
+            try (InputStream is = new FileInputStream(xml)) {
+                new CoverageReportParser(true).parse(report, is);
+            }
+            List<String> names = new ArrayList<>(report.getChildren().keySet());
+            Collections.shuffle(names);
+
+            usedHeap();
+            long base = usedHeap();
+            Map<String, MethodReport> tree = new TreeMap<>(report.getChildren());
+            long treeBytes = usedHeap() - base;
+            base = usedHeap();
+            Map<String, MethodReport> frozen = new SortedArrayMap<>(tree);
+            long frozenBytes = usedHeap() - base;
+
+            for (int round = 0; round < 5; round++) {
+                long treeGet = time(() -> lookup(tree, names));
+                long frozenGet = time(() -> lookup(frozen, names));
+                long treeIterate = time(() -> iterate(tree));
+                long frozenIterate = time(() -> iterate(frozen));
+                System.out.printf("%d functions x 20, round %d: get TreeMap %d us, arrays %d us; iterate TreeMap %d us, arrays %d us%n",
+                        names.size(), round, treeGet / 1000, frozenGet / 1000, treeIterate / 1000, frozenIterate / 1000);
+            }
+            System.out.printf("retained: TreeMap %d KB, arrays %d KB%n", treeBytes / 1024, frozenBytes / 1024);
+            assertEquals(tree.size(), frozen.size());
+        } finally {
+            xml.delete();
+        }
+    }
+
+    private static int lookup(Map<String, MethodReport> map, List<String> names) {
+        int found = 0;
+        for (String name : names) {
+            if (map.get(name) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static int iterate(Map<String, MethodReport> map) {
+        int sum = 0;
+        for (MethodReport method : map.values()) {
+            sum += method.getName().length();
+        }
+        return sum;
+    }
+
+    /**
+     * @return nanoseconds of 20 runs of the task
+     */
+    private static long time(IntSupplier task) {
+        int result = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            result += task.getAsInt();
+        }
+        long nanos = System.nanoTime() - start;
+        assertTrue(result >= 0);
+        return nanos;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,107 @@
+package io.jenkins.plugins.ct.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.Util;
+import io.jenkins.plugins.ct.CTHealthReportThresholds;
+
+public class StaticReportTest {
+    private static final String SAMPLE = "/io/jenkins/plugins/ct/sample.xml";
+
+    private File buildDir;
+
+    @Before
+    public void setUp() throws Exception {
+        buildDir = Files.createTempDirectory("ct-build").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(buildDir);
+    }
+
+    @Test
+    public void testRendersAllPages() throws Exception {
+        CoverageReport report;
+        try (InputStream is = getClass().getResourceAsStream(SAMPLE)) {
+            report = new CoverageReport(null, is);
+        }
+        report.setThresholds(new CTHealthReportThresholds());
+        File dir = new File(buildDir, "html");
+
+        assertFalse(StaticReport.exists(dir));
+        assertEquals(2 + 684, StaticReport.render(report, dir));
+        assertTrue(StaticReport.exists(dir));
+        StaticReport html = new StaticReport(dir);
+        String index = read(html.getPage("index.html"));
+        assertTrue(index.contains("<a href=\"f0.html\">"));
+        assertTrue(index.contains("<a href=\"index-2.html\">"));
+        assertTrue(index.contains("<a href=\"../?live\">"));
+        assertTrue(index.contains("M:</b> 1033 <b>C:</b> 956"));
+        String second = read(html.getPage("index-2.html"));
+        assertTrue(second.contains("<a href=\"f683.html\">"));
+        assertFalse(second.contains("<a href=\"f499.html\">"));
+
+        MethodReport first = report.getChildren().values().iterator().next();
+        String page = read(html.getPage("f0.html"));
+        assertTrue(page.contains("<h2>Function: " + Util.escape(first.getName())));
+        assertTrue(page.contains(first.printFourCoverageColumns()));
+
+    }
+
+    @Test
+    public void testReplacesRenderingWithoutGap() throws Exception {
+        CoverageReport report;
+        try (InputStream is = getClass().getResourceAsStream(SAMPLE)) {
+            report = new CoverageReport(null, is);
+        }
+        report.setThresholds(new CTHealthReportThresholds());
+        File dir = new File(buildDir, "html");
+
+        StaticReport.render(report, dir);
+        StaticReport first = new StaticReport(dir);
+        StaticReport.render(report, dir);
+        StaticReport second = new StaticReport(dir);
+        assertNotEquals(first.getPage("index.html"), second.getPage("index.html"));
+        // a request that opened the previous rendering can still read it
+        assertTrue(first.getPage("index.html").isFile());
+        assertTrue(second.getPage("index.html").isFile());
+
+        StaticReport.render(report, dir);
+        assertFalse(first.getPage("index.html").exists());
+        assertTrue(second.getPage("index.html").isFile());
+        assertEquals(3, dir.list().length);
+        assertFalse(new File(dir, "render.id.tmp").exists());
+    }
+
+    @Test
+    public void testMatchesIfNoneMatch() {
+        assertTrue(StaticReport.matches("\"a-index.html\"", "\"a-index.html\""));
+        assertTrue(StaticReport.matches("\"x\", \"a-index.html\"", "\"a-index.html\""));
+        assertTrue(StaticReport.matches("*", "\"a-index.html\""));
+        assertFalse(StaticReport.matches("\"a-index.html-gz\"", "\"a-index.html\""));
+        assertFalse(StaticReport.matches(null, "\"a-index.html\""));
+    }
+
+    private static String read(File file) throws IOException {
+        try (InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.jenkins.plugins.ct.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class StringPoolTest {
+    private static final String SAMPLE = "/io/jenkins/plugins/ct/sample.xml";
+
+    @Test
+    public void testSharesEqualStrings() {
+        StringPool pool = new StringPool();
+        String a = new String("D:\\opensource\\cpputest-master\\src\\CppUTest\\Utest.cpp");
+        String b = new String(a);
+        assertSame(pool.intern(a), pool.intern(b));
+        assertSame(a, pool.intern(b));
+    }
+
+    /**
+     * Counts the bytes of the distinct string instances a parsed {@code sample.xml} holds on to.
+     */
+    @Test
+    public void testRetainedStringBytes() throws Exception {
+        CoverageReport plain = parse(false);
+        CoverageReport pooled = parse(true);
+
+        long before = retainedStringBytes(plain);
+        long after = retainedStringBytes(pooled);
+        assertEquals(plain.getChildren().keySet(), pooled.getChildren().keySet());
+        assertTrue(after < before * 3 / 4);
+        Map<String, String> sources = new HashMap<>();
+        for (MethodReport method : pooled.getChildren().values()) {
+            assertSame(sources.computeIfAbsent(method.getSource(), s -> s), method.getSource());
+        }
+    }
+
+    /**
+     * Compares the used heap after loading {@code sample.xml} scaled up 100 times, with and without the pool.
+     * Only runs with {@code -Dct.benchmark=true}; {@code -Dct.benchmark.scale} overrides the factor.
+     */
+    @Test
+    public void benchmarkRetainedHeap() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("ct.benchmark"));
+        int scale = Integer.getInteger("ct.benchmark.scale", 100);
+        File xml = File.createTempFile("ct-scaled", ".xml");
+        try {
+            CoverageReportParserTest.writeScaledSample(xml, scale);
+            for (boolean intern : new boolean[] {false, true}) {
+                long base = usedHeap();
+                CoverageReport report = new CoverageReport(null, Collections.emptyList());
+                try (InputStream is = new FileInputStream(xml)) {
+                    new CoverageReportParser(true, intern).parse(report, is);
+                }
+                long used = usedHeap() - base;
+                System.out.printf("%d methods, interning %s: %d KB retained%n", report.getChildren().size(), intern, used / 1024);
+            }
+        } finally {
+            xml.delete();
+        }
+    }
+
+    private CoverageReport parse(boolean intern) throws Exception {
+        CoverageReport report = new CoverageReport(null, Collections.emptyList());
+        try (InputStream is = getClass().getResourceAsStream(SAMPLE)) {
+            new CoverageReportParser(true, intern).parse(report, is);
+        }
+        return report;
+    }
+
+    private static long retainedStringBytes(CoverageReport report) {
+        Map<String, Boolean> seen = new IdentityHashMap<>();
+        for (Map.Entry<String, MethodReport> e : report.getChildren().entrySet()) {
+            MethodReport method = e.getValue();
+            for (String s : new String[] {e.getKey(), method.getName(), method.getSource(), method.getDesc(), method.getLine()}) {
+                if (s != null) {
+                    seen.put(s, Boolean.TRUE);
+                }
+            }
+        }
+        long bytes = 0;
+        for (String s : seen.keySet()) {
+            // String object plus its byte[], assuming compressed oops and Latin-1 content
+            bytes += 24 + align(16 + s.length());
+        }
+        return bytes;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}